@@ -0,0 +1,66 @@
+package weather;
+
+import org.jfree.data.xy.XYDataset;
+import org.openjdk.jmh.annotations.*;
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+import weather.enums.StationsOption;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the dataset of one chart, and writing it with each output backend.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class ChartBenchmark {
+    @Param({"3000"})
+    public int stations;
+
+    private Graph graph;
+    private Data.Query query;
+    private XYDataset dataset;
+    private File file;
+    private ChartWriter png, svg;
+
+    @Setup
+    public void setup() throws IOException {
+        graph = new Graph();
+        graph.getData().setCubeEnabled(true);
+        graph.getData().setStations(Fixtures.stations(stations));
+        query = new Data.Query.Builder().readingOf(ReadingOf.MAX_TEMP).stationsOption(StationsOption.AVERAGE)
+                .province(Province.CANADA).season(Season.SUMMER).build();
+        dataset = graph.createDataset(Fixtures.START_YEAR, Fixtures.END_YEAR, query);
+        file = Files.createTempFile("chart", "").toFile();
+        png = new PngChartWriter(2000, 1000, 4);
+        svg = new SvgChartWriter(2000, 1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public XYDataset dataset() {
+        return graph.createDataset(Fixtures.START_YEAR, Fixtures.END_YEAR, query);
+    }
+
+    @Benchmark
+    public void png() throws IOException {
+        png.write(file, "BENCHMARK", dataset);
+    }
+
+    @Benchmark
+    public void svg() throws IOException {
+        svg.write(file, "BENCHMARK", dataset);
+    }
+}
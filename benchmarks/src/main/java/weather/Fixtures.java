@@ -0,0 +1,126 @@
+package weather;
+
+import com.google.gson.Gson;
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic stations for the benchmarks: the same seed always gives the same stations, readings
+ * and responses, so runs on different machines or commits measure the same work.
+ */
+final class Fixtures {
+    static final long SEED = 20221231L;
+    static final int START_YEAR = 1900, END_YEAR = 2022;
+
+    private static final Province[] PROVINCES = {Province.NL, Province.PE, Province.NS, Province.NB, Province.QC,
+            Province.ON, Province.MB, Province.SK, Province.AB, Province.BC, Province.YT, Province.NT, Province.NU};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Stations spread over Canada, each reporting every month of a random span of years with a few values missing.
+     */
+    static ArrayList<Station> stations(int count) {
+        Random random = new Random(SEED);
+        ArrayList<Station> stations = new ArrayList<>(count);
+        for (int s = 0; s < count; s++) {
+            Province province = PROVINCES[random.nextInt(PROVINCES.length)];
+            float latitude = 42 + random.nextFloat() * 30, longitude = -140 + random.nextFloat() * 87;
+            int first = START_YEAR + random.nextInt(80), last = END_YEAR - random.nextInt(30);
+            ReadingStore readings = new ReadingStore((last - first + 1) * 12);
+            for (int year = first; year <= last; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    float[] v = reading(random, latitude, year, month);
+                    readings.add(year, month, v[0], v[1], v[2], v[3], v[4]);
+                }
+            }
+            stations.add(new Station("STATION " + s, String.valueOf(1000000 + s), province, latitude, longitude,
+                    readings));
+        }
+        return stations;
+    }
+
+    /**
+     * One plausible monthly reading: min, mean, max temperature, snow and precipitation, each missing 5% of the
+     * time.
+     */
+    private static float[] reading(Random random, float latitude, int year, int month) {
+        double seasonal = -Math.cos((month - 1) / 12.0 * 2 * Math.PI);
+        float mean = (float) (20 - 0.8 * (latitude - 42) + 14 * seasonal + 0.01 * (year - START_YEAR)
+                + random.nextGaussian() * 2);
+        float[] v = {mean - 6 - random.nextFloat() * 8, mean, mean + 6 + random.nextFloat() * 8,
+                mean < 0 ? random.nextFloat() * 60 : 0, random.nextFloat() * 120};
+        for (int i = 0; i < v.length; i++) {
+            if (random.nextInt(20) == 0) {
+                v[i] = ReadingStore.MISSING;
+            } else {
+                v[i] = Math.round(v[i] * 10) / 10f;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * The climate summary response for one month, with the same elements as the real service, including ones the
+     * parser skips.
+     */
+    static byte[] monthlyXml(List<Station> stations, int year, int month) {
+        StringBuilder xml = new StringBuilder(stations.size() * 900);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<climate_summaries>\n");
+        for (Station s : stations) {
+            ReadingStore r = s.getReadings();
+            int i = 0;
+            while (i < r.size() && (r.getYear(i) != year || r.getMonth(i) != month)) {
+                i++;
+            }
+            if (i == r.size()) {
+                continue;
+            }
+            xml.append("  <station>\n")
+                    .append("    <name>").append(s.getName()).append("</name>\n")
+                    .append("    <identifier>").append(s.getIdentifier()).append("</identifier>\n")
+                    .append("    <province_or_territory code=\"").append(s.getProvince().name()).append("\">")
+                    .append(s.getProvince()).append("</province_or_territory>\n")
+                    .append("    <latitude>").append(s.getLatitude()).append("</latitude>\n")
+                    .append("    <longitude>").append(s.getLongitude()).append("</longitude>\n")
+                    .append("    <local_date>").append(String.format(Locale.ROOT, "%d-%02d", year, month))
+                    .append("</local_date>\n");
+            value(xml, "min_temperature", "value", r, ReadingOf.MIN_TEMP, i);
+            value(xml, "mean_temperature", "value", r, ReadingOf.MEAN_TEMP, i);
+            value(xml, "max_temperature", "value", r, ReadingOf.MAX_TEMP, i);
+            value(xml, "snow", "total", r, ReadingOf.SNOW, i);
+            value(xml, "precipitation", "total", r, ReadingOf.PRECIPITATION, i);
+            xml.append("    <heating_degree_days value=\"412.3\" units=\"C\"/>\n")
+                    .append("    <bright_sunshine value=\"\" units=\"hours\"/>\n")
+                    .append("    <days_with_precipitation_ge_1mm value=\"9\"/>\n")
+                    .append("  </station>\n");
+        }
+        return xml.append("</climate_summaries>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void value(StringBuilder xml, String tag, String attribute, ReadingStore r,
+                              ReadingOf field, int i) {
+        xml.append("    <").append(tag).append(' ').append(attribute).append("=\"");
+        if (!r.isMissing(field, i)) {
+            xml.append(r.get(field, i));
+        }
+        xml.append("\" units=\"").append(tag.endsWith("temperature") ? "C" : "mm").append("\"/>\n");
+    }
+
+    static void writeJson(Path file, List<Station> stations) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new Gson().toJson(stations, out);
+        }
+    }
+}
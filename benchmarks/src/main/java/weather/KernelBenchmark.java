@@ -0,0 +1,63 @@
+package weather;
+
+import org.openjdk.jmh.annotations.*;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scalar and vector aggregation kernels over every reading of a national station set: all months of all years,
+ * summer months of all years, and one year. Needs {@code --add-modules jdk.incubator.vector}, which
+ * {@link BenchmarkMain} adds to every fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+    @Param({"SCALAR", "VECTOR"})
+    public String kernel;
+
+    @Param({"3000"})
+    public int stations;
+
+    private AggregationKernel aggregationKernel;
+    private ArrayList<Station> data;
+    private int summer;
+
+    @Setup
+    public void setup() {
+        aggregationKernel = kernel.equals("VECTOR") ? new VectorAggregationKernel() : new AggregationKernel.Scalar();
+        data = Fixtures.stations(stations);
+        summer = QueryPlan.monthMask(0, Season.SUMMER);
+    }
+
+    private Aggregate scan(int year, int monthMask) {
+        Aggregate aggregate = new Aggregate(1);
+        for (Station s : data) {
+            ReadingStore r = s.getReadings();
+            aggregationKernel.add(r.getColumn(ReadingOf.MEAN_TEMP), r.getMissing(ReadingOf.MEAN_TEMP), r.getYears(),
+                    r.getMonths(), 0, r.size(), year, monthMask, aggregate, 0);
+        }
+        return aggregate;
+    }
+
+    @Benchmark
+    public Aggregate allYears() {
+        return scan(0, -1);
+    }
+
+    @Benchmark
+    public Aggregate summerAllYears() {
+        return scan(0, summer);
+    }
+
+    @Benchmark
+    public Aggregate singleYear() {
+        return scan(1990, -1);
+    }
+}
@@ -0,0 +1,47 @@
+package weather;
+
+import org.openjdk.jmh.annotations.*;
+import weather.enums.Province;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading stations.json: everything, and one province over a few decades, which skips most readings unparsed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+    @Param({"1000"})
+    public int stations;
+
+    private Path json;
+
+    @Setup
+    public void setup() throws IOException {
+        json = Files.createTempFile("stations", ".json");
+        Fixtures.writeJson(json, Fixtures.stations(stations));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(json);
+    }
+
+    @Benchmark
+    public ArrayList<Station> json() throws IOException {
+        return new StationsJsonReader(null, 0, 0).read(json);
+    }
+
+    @Benchmark
+    public ArrayList<Station> jsonFiltered() throws IOException {
+        return new StationsJsonReader(Province.ON, 1950, 1980).read(json);
+    }
+}
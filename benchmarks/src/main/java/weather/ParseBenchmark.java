@@ -0,0 +1,38 @@
+package weather;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing one monthly climate summary response with all the stations reporting that month.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    @Param({"1500"})
+    public int stations;
+
+    private byte[] xml;
+
+    @Setup
+    public void setup() {
+        xml = Fixtures.monthlyXml(Fixtures.stations(stations), 2000, 1);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        ClimateSummaryParser.parse(new ByteArrayInputStream(xml), (identifier, name, province, latitude, longitude,
+                                                                     values) -> {
+            blackhole.consume(identifier);
+            blackhole.consume(values);
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package weather;
+
+import org.openjdk.jmh.annotations.*;
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+import weather.enums.StationsOption;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-year and 1900-2022 range queries over national, provincial and radius selections, answered from the
+ * cube, by a scan on one thread, or by a scan split across the fork/join pool. Radius queries always scan, so
+ * their cube variants show that the cube does not get in the way.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    @Param({"NATIONAL", "PROVINCE", "RADIUS"})
+    public String scope;
+
+    @Param({"CUBE", "SCAN", "PARALLEL"})
+    public String path;
+
+    @Param({"3000"})
+    public int stations;
+
+    private Data data;
+    private Data.Query query;
+
+    @Setup
+    public void setup() {
+        data = new Data();
+        data.setCubeEnabled(path.equals("CUBE"));
+        data.setParallelEnabled(path.equals("PARALLEL"));
+        data.setStations(Fixtures.stations(stations));
+
+        Data.Query.Builder builder = new Data.Query.Builder().readingOf(ReadingOf.MEAN_TEMP)
+                .stationsOption(StationsOption.AVERAGE).season(Season.SUMMER).year(1990);
+        switch (scope) {
+            case "NATIONAL" -> builder.province(Province.CANADA);
+            case "PROVINCE" -> builder.province(Province.ON);
+            case "RADIUS" -> builder.province(Province.CANADA).withinRangeKM(500, 50, -100);
+            default -> throw new IllegalArgumentException(scope);
+        }
+        query = builder.build();
+        // The cube is built by the first query it answers, which is not what is being measured.
+        data.query(query);
+    }
+
+    @Benchmark
+    public float single() {
+        return data.query(query);
+    }
+
+    @Benchmark
+    public float[] range() {
+        return data.queryRange(query, Fixtures.START_YEAR, Fixtures.END_YEAR);
+    }
+}
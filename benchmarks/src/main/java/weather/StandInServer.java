@@ -0,0 +1,233 @@
+package weather;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the climate summary service, answering the same {@code intYear}/{@code intMonth} requests
+ * with {@link SyntheticClimate} responses, for load-testing downloads offline.
+ * <p>
+ * Faults are injected per request: a fixed plus random latency before answering, a share of 503 errors, and a
+ * share of responses that announce their full length but stop halfway, which the client sees as an unexpected
+ * end of stream. They are drawn from a seeded generator, so a run with one request at a time is repeatable.
+ * <p>
+ * Usage: {@code StandInServer [--port=P] [--stations=N] [--years=START-END] [--latency=MS] [--jitter=MS]
+ * [--error-rate=F] [--truncate-rate=F]}. Point the download at it with
+ * {@code -Dweather.baseUrl=http://localhost:P/climate}. Like the benchmarks, it is only built by the benchmarks
+ * project: {@code java -cp benchmarks/target/benchmarks.jar weather.StandInServer}.
+ */
+public class StandInServer {
+    private final SyntheticClimate climate;
+    private final int latencyMillis, jitterMillis;
+    private final double errorRate, truncateRate;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong(), errors = new AtomicLong(), truncated = new AtomicLong(),
+            bytes = new AtomicLong();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private StandInServer(Builder builder) throws IOException {
+        climate = builder.climate.build();
+        latencyMillis = builder.latencyMillis;
+        jitterMillis = builder.jitterMillis;
+        errorRate = builder.errorRate;
+        truncateRate = builder.truncateRate;
+        random = new Random(builder.seed);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(builder.port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Builder builder = new Builder();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--port=")) {
+                builder.port(Integer.parseInt(value));
+            } else if (arg.startsWith("--stations=")) {
+                builder.climate().stations(Integer.parseInt(value));
+            } else if (arg.startsWith("--years=")) {
+                String[] years = value.split("-");
+                builder.climate().years(Integer.parseInt(years[0]), Integer.parseInt(years[1]));
+            } else if (arg.startsWith("--latency=")) {
+                builder.latency(Integer.parseInt(value), builder.jitterMillis);
+            } else if (arg.startsWith("--jitter=")) {
+                builder.latency(builder.latencyMillis, Integer.parseInt(value));
+            } else if (arg.startsWith("--error-rate=")) {
+                builder.errorRate(Double.parseDouble(value));
+            } else if (arg.startsWith("--truncate-rate=")) {
+                builder.truncateRate(Double.parseDouble(value));
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        StandInServer server = builder.build();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Serving synthetic climate summaries on http://localhost:" + server.getPort() + "/climate");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort() + "/climate";
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        System.out.println("Served " + requests.get() + " requests, " + bytes.get() + " bytes, " + errors.get()
+                + " errors, " + truncated.get() + " truncated");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            int delay;
+            boolean error, truncate;
+            synchronized (random) {
+                delay = latencyMillis + (jitterMillis > 0 ? random.nextInt(jitterMillis + 1) : 0);
+                error = random.nextDouble() < errorRate;
+                truncate = !error && random.nextDouble() < truncateRate;
+            }
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (error) {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+            int year, month;
+            try {
+                year = Integer.parseInt(query.get("intYear"));
+                month = Integer.parseInt(query.get("intMonth"));
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            if (month < 1 || month > 12) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+            try (Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+                climate.writeMonth(out, year, month);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.size());
+            OutputStream out = exchange.getResponseBody();
+            if (truncate) {
+                truncated.incrementAndGet();
+                out.write(body.toByteArray(), 0, body.size() / 2);
+                out.flush();
+                bytes.addAndGet(body.size() / 2);
+                return;
+            }
+            body.writeTo(out);
+            bytes.addAndGet(body.size());
+        } catch (IOException e) {
+            // Closing a truncated response fails and drops the connection, which is the point; anything else is the
+            // client going away.
+        }
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    query.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+        return query;
+    }
+
+    public static class Builder {
+        private final SyntheticClimate.Builder climate;
+        private int port, latencyMillis, jitterMillis;
+        private double errorRate, truncateRate;
+        private long seed;
+
+        public Builder() {
+            climate = new SyntheticClimate.Builder();
+            port = 8080;
+            latencyMillis = 0;
+            jitterMillis = 0;
+            errorRate = 0;
+            truncateRate = 0;
+            seed = 1;
+        }
+
+        /**
+         * The generator of the responses, to set its scale and seed.
+         */
+        public SyntheticClimate.Builder climate() {
+            return climate;
+        }
+
+        public StandInServer.Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public StandInServer.Builder latency(int latencyMillis, int jitterMillis) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            return this;
+        }
+
+        public StandInServer.Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public StandInServer.Builder truncateRate(double truncateRate) {
+            this.truncateRate = truncateRate;
+            return this;
+        }
+
+        public StandInServer.Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public StandInServer build() throws IOException {
+            return new StandInServer(this);
+        }
+    }
+}
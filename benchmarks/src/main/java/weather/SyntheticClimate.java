@@ -0,0 +1,281 @@
+package weather;
+
+import com.google.gson.stream.JsonWriter;
+import weather.enums.Province;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates a realistic climate dataset of any size without holding it in memory: climate summary responses
+ * month by month, and the stations.json that downloading every one of them would produce.
+ * <p>
+ * Every value is derived from the seed and its station, year and month alone, so any month can be generated on
+ * its own, in any order, and always comes out the same. Stations are spread over the provinces roughly like the
+ * real network, each reports over its own span of years, skips a few months and leaves a few values blank.
+ * <p>
+ * Usage: {@code SyntheticClimate [--stations=N] [--years=START-END] [--seed=S] [--json=FILE] [--xml=DIR]}, where
+ * {@code --xml} writes one gzip response per month. It is built with the benchmarks project and run with
+ * {@code java -cp benchmarks/target/benchmarks.jar weather.SyntheticClimate}.
+ */
+public class SyntheticClimate {
+    private static final Province[] PROVINCES = {Province.NL, Province.PE, Province.NS, Province.NB, Province.QC,
+            Province.ON, Province.MB, Province.SK, Province.AB, Province.BC, Province.YT, Province.NT, Province.NU};
+    private static final int[] PROVINCE_WEIGHTS = {5, 1, 4, 4, 15, 20, 7, 9, 12, 16, 2, 3, 2};
+    private static final int TOTAL_WEIGHT = 100;
+    /**
+     * Approximate {south, north, west, east} bounds of each province, in the order of {@link #PROVINCES}.
+     */
+    private static final float[][] PROVINCE_BOUNDS = {{47, 60, -67, -52.6f}, {46, 47, -64.4f, -62},
+            {43.4f, 47, -66.4f, -59.7f}, {45, 48, -69, -63.8f}, {45, 62, -79.5f, -57}, {42, 56.9f, -95, -74.3f},
+            {49, 60, -102, -89}, {49, 60, -110, -101.4f}, {49, 60, -120, -110}, {48.3f, 60, -139, -114},
+            {60, 69.6f, -141, -124}, {60, 78, -136, -102}, {60, 83, -120, -61}};
+
+    private final int stations, startYear, endYear;
+    private final long seed;
+
+    private SyntheticClimate(Builder builder) {
+        if (builder.stations <= 0 || builder.startYear > builder.endYear) {
+            throw new IllegalArgumentException("Invalid scale " + builder.stations + " stations, "
+                    + builder.startYear + "-" + builder.endYear);
+        }
+        stations = builder.stations;
+        startYear = builder.startYear;
+        endYear = builder.endYear;
+        seed = builder.seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Builder builder = new Builder();
+        String json = null, xml = null;
+        for (String arg : args) {
+            if (arg.startsWith("--stations=")) {
+                builder.stations(Integer.parseInt(arg.substring("--stations=".length())));
+            } else if (arg.startsWith("--years=")) {
+                String[] years = arg.substring("--years=".length()).split("-");
+                builder.years(Integer.parseInt(years[0]), Integer.parseInt(years[1]));
+            } else if (arg.startsWith("--seed=")) {
+                builder.seed(Long.parseLong(arg.substring("--seed=".length())));
+            } else if (arg.startsWith("--json=")) {
+                json = arg.substring("--json=".length());
+            } else if (arg.startsWith("--xml=")) {
+                xml = arg.substring("--xml=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        SyntheticClimate climate = builder.build();
+        if (json != null) {
+            climate.writeJson(Paths.get(json));
+            System.out.println("Wrote " + json);
+        }
+        if (xml != null) {
+            Path directory = Files.createDirectories(Paths.get(xml));
+            for (int year = climate.startYear; year <= climate.endYear; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    Path file = directory.resolve(String.format(Locale.ROOT, "%04d-%02d.xml.gz", year, month));
+                    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                            new GZIPOutputStream(Files.newOutputStream(file), 65536), StandardCharsets.UTF_8))) {
+                        climate.writeMonth(out, year, month);
+                    }
+                }
+            }
+            System.out.println("Wrote " + (climate.endYear - climate.startYear + 1) * 12 + " months to " + xml);
+        }
+    }
+
+    private SplittableRandom random(int station, int period) {
+        return new SplittableRandom(seed ^ ((long) station << 24) ^ period);
+    }
+
+    private Province province(int station) {
+        int pick = random(station, 0).nextInt(TOTAL_WEIGHT);
+        int p = 0;
+        while (pick >= PROVINCE_WEIGHTS[p]) {
+            pick -= PROVINCE_WEIGHTS[p++];
+        }
+        return PROVINCES[p];
+    }
+
+    /**
+     * Returns {latitude, longitude, first year, last year} of a station.
+     */
+    private float[] describe(int station, Province province) {
+        SplittableRandom random = random(station, 1);
+        float[] bounds = PROVINCE_BOUNDS[province.ordinal()];
+        int span = endYear - startYear + 1;
+        int first = startYear + random.nextInt(Math.max(1, span * 3 / 5));
+        int last = Math.max(first, endYear - random.nextInt(Math.max(1, span * 3 / 10)));
+        return new float[]{round(bounds[0] + random.nextFloat() * (bounds[1] - bounds[0]), 100),
+                round(bounds[2] + random.nextFloat() * (bounds[3] - bounds[2]), 100), first, last};
+    }
+
+    private static float round(double value, int scale) {
+        return (float) Math.round(value * scale) / scale;
+    }
+
+    private static String identifier(int station) {
+        return String.valueOf(1000000 + station);
+    }
+
+    private static String name(int station, Province province) {
+        return province.toString().toUpperCase(Locale.ROOT) + " STATION " + station;
+    }
+
+    /**
+     * Fills {@code values} with the reading of a station for one month, or returns false if it did not report.
+     */
+    private boolean reading(int station, float latitude, int year, int month, float[] values) {
+        SplittableRandom random = random(station, 2 + year * 12 + month);
+        if (random.nextInt(33) == 0) {
+            return false;
+        }
+        double seasonal = -Math.cos((month - 1) / 12.0 * 2 * Math.PI);
+        double mean = 8 - 0.6 * (latitude - 42) + (12 + 0.2 * (latitude - 42)) * seasonal
+                + 0.012 * (year - 1900) + gaussian(random) * 2;
+        values[0] = round(mean - 5 - random.nextDouble() * 10, 10);
+        values[1] = round(mean, 10);
+        values[2] = round(mean + 5 + random.nextDouble() * 10, 10);
+        values[3] = mean < 2 ? round(random.nextDouble() * 80, 10) : 0;
+        values[4] = round(random.nextDouble() * random.nextDouble() * 250, 10);
+        for (int i = 0; i < values.length; i++) {
+            if (random.nextInt(25) == 0) {
+                values[i] = ReadingStore.MISSING;
+            }
+        }
+        return true;
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Writes the climate summary response for one month, listing every station that reported in it.
+     */
+    public void writeMonth(Writer out, int year, int month) throws IOException {
+        float[] values = new float[5];
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<climate_summaries>\n");
+        for (int s = 0; s < stations; s++) {
+            Province province = province(s);
+            float[] station = describe(s, province);
+            if (year < station[2] || year > station[3] || !reading(s, station[0], year, month, values)) {
+                continue;
+            }
+            out.write("  <station>\n    <name>");
+            out.write(name(s, province));
+            out.write("</name>\n    <identifier>");
+            out.write(identifier(s));
+            out.write("</identifier>\n    <province_or_territory code=\"");
+            out.write(province.name());
+            out.write("\">");
+            out.write(province.toString());
+            out.write("</province_or_territory>\n    <latitude>");
+            out.write(Float.toString(station[0]));
+            out.write("</latitude>\n    <longitude>");
+            out.write(Float.toString(station[1]));
+            out.write("</longitude>\n    <local_date>");
+            out.write(String.format(Locale.ROOT, "%04d-%02d", year, month));
+            out.write("</local_date>\n");
+            writeValue(out, "min_temperature", "value", "C", values[0]);
+            writeValue(out, "mean_temperature", "value", "C", values[1]);
+            writeValue(out, "max_temperature", "value", "C", values[2]);
+            writeValue(out, "snow", "total", "cm", values[3]);
+            writeValue(out, "precipitation", "total", "mm", values[4]);
+            out.write("    <heating_degree_days value=\"\" units=\"C\"/>\n"
+                    + "    <bright_sunshine value=\"\" units=\"hours\"/>\n"
+                    + "    <days_with_precipitation_ge_1mm value=\"\"/>\n  </station>\n");
+        }
+        out.write("</climate_summaries>\n");
+    }
+
+    private static void writeValue(Writer out, String tag, String attribute, String units, float value)
+            throws IOException {
+        out.write("    <");
+        out.write(tag);
+        out.write(' ');
+        out.write(attribute);
+        out.write("=\"");
+        if (value != ReadingStore.MISSING) {
+            out.write(Float.toString(value));
+        }
+        out.write("\" units=\"");
+        out.write(units);
+        out.write("\"/>\n");
+    }
+
+    /**
+     * Writes stations.json with every station and reading, one station at a time.
+     */
+    public void writeJson(Path file) throws IOException {
+        ReadingStore.Adapter adapter = new ReadingStore.Adapter();
+        float[] values = new float[5];
+        try (JsonWriter out = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.beginArray();
+            for (int s = 0; s < stations; s++) {
+                Province province = province(s);
+                float[] station = describe(s, province);
+                ReadingStore readings = new ReadingStore();
+                for (int year = (int) station[2]; year <= station[3]; year++) {
+                    for (int month = 1; month <= 12; month++) {
+                        if (reading(s, station[0], year, month, values)) {
+                            readings.add(year, month, values[0], values[1], values[2], values[3], values[4]);
+                        }
+                    }
+                }
+                out.beginObject();
+                out.name("name").value(name(s, province));
+                out.name("identifier").value(identifier(s));
+                out.name("province").value(province.name());
+                out.name("readings");
+                adapter.write(out, readings);
+                out.name("latitude").value((Number) station[0]);
+                out.name("longitude").value((Number) station[1]);
+                out.endObject();
+            }
+            out.endArray();
+        }
+    }
+
+    public static class Builder {
+        private int stations, startYear, endYear;
+        private long seed;
+
+        public Builder() {
+            stations = 1000;
+            startYear = 1900;
+            endYear = 2022;
+            seed = 20221231L;
+        }
+
+        public SyntheticClimate.Builder stations(int stations) {
+            this.stations = stations;
+            return this;
+        }
+
+        public SyntheticClimate.Builder years(int startYear, int endYear) {
+            this.startYear = startYear;
+            this.endYear = endYear;
+            return this;
+        }
+
+        public SyntheticClimate.Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public SyntheticClimate build() {
+            return new SyntheticClimate(this);
+        }
+    }
+}
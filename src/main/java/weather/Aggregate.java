@@ -0,0 +1,93 @@
+package weather;
+
+import weather.enums.StationsOption;
+
+import java.util.Arrays;
+
+/**
+ * Sum, count, min and max of readings for each of a run of years, which can be merged with another over the same
+ * years. A single-year or all-years query uses one slot. For percentile options each slot has a
+ * {@link QuantileSketch} of the readings instead.
+ * <p>
+ * Sums are kept in double precision, so merging partial aggregates in a different grouping changes a result by
+ * far less than a float ulp; {@link QueryPlan} still always groups them the same way, so every answer is exact
+ * to the bit whether it was computed on one thread or many.
+ * <p>
+ * {@link #scanned} counts the readings visited to build it, whether or not they matched.
+ */
+class Aggregate {
+    final double[] total;
+    final int[] count;
+    final float[] max, min;
+    private final QuantileSketch[] sketches;
+    long scanned;
+
+    Aggregate(int years) {
+        this(years, false);
+    }
+
+    Aggregate(int years, boolean percentiles) {
+        sketches = percentiles ? new QuantileSketch[years] : null;
+        total = new double[years];
+        count = new int[years];
+        max = new float[years];
+        min = new float[years];
+        Arrays.fill(max, Float.MIN_VALUE);
+        Arrays.fill(min, Float.MAX_VALUE);
+    }
+
+    void add(int slot, double total, int count, float max, float min) {
+        this.total[slot] += total;
+        this.count[slot] += count;
+        this.max[slot] = Math.max(this.max[slot], max);
+        this.min[slot] = Math.min(this.min[slot], min);
+    }
+
+    /**
+     * Returns the sketch of a slot of a percentile aggregate, creating it on first use.
+     */
+    QuantileSketch sketch(int slot) {
+        if (sketches[slot] == null) {
+            sketches[slot] = new QuantileSketch();
+        }
+        return sketches[slot];
+    }
+
+    /**
+     * Adds {@code other}, which must cover the same years and options, into this aggregate.
+     */
+    Aggregate merge(Aggregate other) {
+        for (int y = 0; y < total.length; y++) {
+            add(y, other.total[y], other.count[y], other.max[y], other.min[y]);
+            if (sketches != null && other.sketches[y] != null) {
+                sketch(y).merge(other.sketches[y]);
+            }
+        }
+        scanned += other.scanned;
+        return this;
+    }
+
+    float result(int slot, StationsOption stationsOption) {
+        if (stationsOption.isPercentile()) {
+            return sketches[slot] == null ? ReadingStore.MISSING
+                    : sketches[slot].quantile(stationsOption.getQuantile());
+        }
+        if (count[slot] > 0) {
+            return switch (stationsOption) {
+                case AVERAGE -> (float) (total[slot] / count[slot]);
+                case EXTREME_MAX -> max[slot];
+                case EXTREME_MIN -> min[slot];
+                default -> throw new IllegalArgumentException(stationsOption.name());
+            };
+        }
+        return ReadingStore.MISSING;
+    }
+
+    float[] results(StationsOption stationsOption) {
+        float[] results = new float[total.length];
+        for (int y = 0; y < results.length; y++) {
+            results[y] = result(y, stationsOption);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,68 @@
+package weather;
+
+/**
+ * The innermost loop of a scan: folds the readings of one column that pass the missing, year and month filters
+ * into one slot of an {@link Aggregate}.
+ * <p>
+ * {@link #INSTANCE} is chosen once at startup: {@link VectorAggregationKernel} when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} and has vectors of at least 8 floats, otherwise the scalar loop.
+ * Setting {@code -Dweather.scalarKernel=true} forces the scalar loop. Both sum in double precision, but in a
+ * different order, so an average can differ between them in the last float ulp.
+ */
+abstract class AggregationKernel {
+    static final AggregationKernel INSTANCE = select();
+
+    private static AggregationKernel select() {
+        if (!Boolean.getBoolean("weather.scalarKernel")
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                if (VectorAggregationKernel.isSupported()) {
+                    return new VectorAggregationKernel();
+                }
+            } catch (LinkageError e) {
+                // The module is there but unusable on this platform.
+            }
+        }
+        return new Scalar();
+    }
+
+    /**
+     * Adds the readings in {@code [from, to)} that are not missing, are from {@code year}, or any year if it is 0,
+     * and from a month whose bit is set in {@code monthMask}, into {@code slot} of {@code aggregate}.
+     */
+    abstract void add(float[] values, long[] missing, short[] years, byte[] months, int from, int to, int year,
+                      int monthMask, Aggregate aggregate, int slot);
+
+    static class Scalar extends AggregationKernel {
+        @Override
+        void add(float[] values, long[] missing, short[] years, byte[] months, int from, int to, int year,
+                 int monthMask, Aggregate aggregate, int slot) {
+            double total = 0;
+            float max = Float.MIN_VALUE, min = Float.MAX_VALUE;
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if ((year == 0 || years[i] == year)
+                        && (monthMask >>> months[i] & 1) != 0
+                        && (missing[i >>> 6] & (1L << i)) == 0) {
+                    float value = values[i];
+                    count++;
+                    total += value;
+
+                    if (value > max) {
+                        max = value;
+                    }
+
+                    if (value < min) {
+                        min = value;
+                    }
+                }
+            }
+            aggregate.add(slot, total, count, max, min);
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package weather;
+
+import org.jfree.data.xy.XYDataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints of the charts under the output directory, kept in a manifest beside them.
+ * <p>
+ * A fingerprint is a SHA-256 over every point of every series in the chart's dataset together with a string
+ * describing how it is rendered. A chart whose file exists and whose fingerprint matches the manifest would come
+ * out identical, so it does not need to be rendered again.
+ */
+class ChartManifest {
+    private final Path path;
+    private final ConcurrentHashMap<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    private ChartManifest(Path path) {
+        this.path = path;
+    }
+
+    static ChartManifest load(Path path) throws IOException {
+        ChartManifest manifest = new ChartManifest(path);
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0) {
+                    manifest.fingerprints.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    static String fingerprint(XYDataset dataset, String renderSettings) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(renderSettings.getBytes(StandardCharsets.UTF_8));
+        byte[] point = new byte[16];
+        for (int s = 0; s < dataset.getSeriesCount(); s++) {
+            digest.update(String.valueOf(dataset.getSeriesKey(s)).getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < dataset.getItemCount(s); i++) {
+                putLong(point, 0, Double.doubleToLongBits(dataset.getXValue(s, i)));
+                putLong(point, 8, Double.doubleToLongBits(dataset.getYValue(s, i)));
+                digest.update(point);
+            }
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static String key(File file) {
+        return file.getPath().replace('\\', '/');
+    }
+
+    boolean isUpToDate(File file, String fingerprint) {
+        return file.exists() && fingerprint.equals(fingerprints.get(key(file)));
+    }
+
+    void record(File file, String fingerprint) {
+        fingerprints.put(key(file), fingerprint);
+    }
+
+    /**
+     * Writes the manifest to a temporary file and moves it into place.
+     */
+    void save() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<>(fingerprints).entrySet()) {
+            sb.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temp, sb, StandardCharsets.UTF_8);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
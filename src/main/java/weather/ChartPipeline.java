@@ -0,0 +1,133 @@
+package weather;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-stage pipeline for chart generation: datasets are computed on one pool and rendered on another.
+ * <p>
+ * The pools together use one thread per core. Rendering takes most of the time, so it gets most of the threads,
+ * and the queue of computed datasets waiting to be rendered is bounded: when it is full, compute threads wait
+ * instead of piling up datasets in memory. A compute step may return {@code null} to skip rendering, for a chart
+ * that is already up to date. {@link #await()} returns once every submitted chart is done.
+ * <p>
+ * The compute steps should query serially: the pool already keeps the cores busy with one chart per thread.
+ */
+class ChartPipeline {
+    private static final int REPORT_EVERY = 25;
+    private static final Metrics.Histogram COMPUTE_SECONDS = Metrics.histogram("weather_chart_compute_seconds",
+            "Time to compute the dataset of one chart", Metrics.SECONDS);
+    private static final Metrics.Histogram RENDER_SECONDS = Metrics.histogram("weather_chart_render_seconds",
+            "Time to render and write one chart", Metrics.SECONDS);
+    private static final Metrics.Histogram QUEUE_SECONDS = Metrics.histogram("weather_chart_queue_seconds",
+            "Time a computed chart waited for a render thread", Metrics.SECONDS);
+
+    private final ThreadPoolExecutor computeExecutor, renderExecutor;
+    private final Phaser pending = new Phaser(1);
+    private final AtomicInteger submitted = new AtomicInteger(), completed = new AtomicInteger(),
+            skipped = new AtomicInteger(), failed = new AtomicInteger();
+
+    ChartPipeline() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    private ChartPipeline(int cores) {
+        this(Math.max(1, cores / 4), Math.max(1, cores - cores / 4), cores * 2);
+    }
+
+    ChartPipeline(int computeThreads, int renderThreads, int renderQueueCapacity) {
+        computeExecutor = new ThreadPoolExecutor(computeThreads, computeThreads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        renderExecutor = new ThreadPoolExecutor(renderThreads, renderThreads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(renderQueueCapacity), (task, executor) -> {
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        });
+    }
+
+    interface Renderer<T> {
+        void render(T dataset) throws Exception;
+    }
+
+    /**
+     * Queues a chart: {@code compute} runs on the compute pool and its result is handed to {@code render} on the
+     * render pool, unless it is {@code null}.
+     */
+    <T> void submit(String name, Callable<T> compute, Renderer<T> render) {
+        pending.register();
+        submitted.incrementAndGet();
+        computeExecutor.execute(() -> {
+            T dataset;
+            long start = System.nanoTime();
+            try {
+                dataset = compute.call();
+            } catch (Throwable e) {
+                fail(name, e);
+                return;
+            } finally {
+                COMPUTE_SECONDS.observeSince(start);
+            }
+            if (dataset == null) {
+                skipped.incrementAndGet();
+                Metrics.counter("weather_charts_total", "Charts by outcome", "outcome", "up_to_date").inc();
+                pending.arriveAndDeregister();
+                return;
+            }
+            long queued = System.nanoTime();
+            renderExecutor.execute(() -> {
+                long renderStart = System.nanoTime();
+                QUEUE_SECONDS.observe((renderStart - queued) / 1e9);
+                try {
+                    render.render(dataset);
+                    RENDER_SECONDS.observeSince(renderStart);
+                    done();
+                } catch (Throwable e) {
+                    fail(name, e);
+                }
+            });
+        });
+    }
+
+    private void done() {
+        Metrics.counter("weather_charts_total", "Charts by outcome", "outcome", "rendered").inc();
+        int n = completed.incrementAndGet();
+        if (n % REPORT_EVERY == 0) {
+            System.out.println("Rendered " + n + "/" + submitted.get() + " charts");
+        }
+        pending.arriveAndDeregister();
+    }
+
+    private void fail(String name, Throwable e) {
+        System.out.println("Failed chart " + name + ": " + e.getLocalizedMessage());
+        e.printStackTrace();
+        Metrics.counter("weather_charts_total", "Charts by outcome", "outcome", "failed").inc();
+        failed.incrementAndGet();
+        pending.arriveAndDeregister();
+    }
+
+    /**
+     * Waits for every submitted chart and shuts the pools down.
+     *
+     * @return the number of charts that failed
+     */
+    int await() throws InterruptedException {
+        pending.awaitAdvanceInterruptibly(pending.arrive());
+        computeExecutor.shutdown();
+        renderExecutor.shutdown();
+        computeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        renderExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.println("Rendered " + completed.get() + "/" + submitted.get() + " charts, " + skipped.get()
+                + " up to date, " + failed.get() + " failed");
+        return failed.get();
+    }
+}
@@ -0,0 +1,26 @@
+package weather;
+
+import org.jfree.data.xy.XYDataset;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Output backend for the charts made by {@link Graph}.
+ */
+interface ChartWriter {
+    /**
+     * File extension of the charts, without the dot.
+     */
+    String extension();
+
+    /**
+     * Describes every setting that affects the written file, for {@link ChartManifest} fingerprints.
+     */
+    String settings();
+
+    /**
+     * Writes the chart of {@code dataset} to {@code file}, creating its parent directories.
+     */
+    void write(File file, String title, XYDataset dataset) throws IOException;
+}
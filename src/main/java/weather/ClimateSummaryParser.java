@@ -0,0 +1,159 @@
+package weather;
+
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Forward-only StAX parser for the monthly climate summary XML.
+ * <p>
+ * Each {@code station} element is read in a single pass over its children and handed to a {@link Handler}, so
+ * no DOM is built and the document can be parsed straight from the response stream. Values follow the rules of
+ * the old DOM reader: text of the first matching child for metadata, and the first matching child carrying the
+ * attribute for readings, with {@link ReadingStore#MISSING} for anything absent or unparseable.
+ */
+class ClimateSummaryParser {
+    private static final XMLInputFactory factory = XMLInputFactory.newFactory();
+
+    static {
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Receives every station of a document in order. {@code values} is indexed by {@link ReadingOf#ordinal()}
+     * and is reused for the next station, so it must be copied to be kept.
+     */
+    interface Handler {
+        void station(String identifier, String name, Province province, float latitude, float longitude,
+                     float[] values);
+    }
+
+    private ClimateSummaryParser() {
+    }
+
+    /**
+     * Parses a whole document. Malformed or truncated XML is reported as an {@link IOException}.
+     */
+    static void parse(InputStream in, Handler handler) throws IOException {
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                float[] values = new float[ReadingOf.values().length];
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("station")) {
+                        readStation(reader, handler, values);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed climate summary: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readStation(XMLStreamReader reader, Handler handler, float[] values) throws XMLStreamException {
+        String name = null, identifier = null, provinceCode = null, latitude = null, longitude = null;
+        Arrays.fill(values, ReadingStore.MISSING);
+        boolean[] seen = new boolean[values.length];
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String tag = reader.getLocalName();
+            switch (tag) {
+                case "name" -> name = first(name, readText(reader));
+                case "identifier" -> identifier = first(identifier, readText(reader));
+                case "latitude" -> latitude = first(latitude, readText(reader));
+                case "longitude" -> longitude = first(longitude, readText(reader));
+                case "province_or_territory" -> {
+                    provinceCode = first(provinceCode, reader.getAttributeValue(null, "code"));
+                    skip(reader);
+                }
+                case "min_temperature" -> readValue(reader, ReadingOf.MIN_TEMP, "value", values, seen);
+                case "mean_temperature" -> readValue(reader, ReadingOf.MEAN_TEMP, "value", values, seen);
+                case "max_temperature" -> readValue(reader, ReadingOf.MAX_TEMP, "value", values, seen);
+                case "snow" -> readValue(reader, ReadingOf.SNOW, "total", values, seen);
+                case "precipitation" -> readValue(reader, ReadingOf.PRECIPITATION, "total", values, seen);
+                default -> skip(reader);
+            }
+        }
+
+        handler.station(identifier, name, parseProvince(provinceCode), parseFloat(latitude), parseFloat(longitude),
+                values);
+    }
+
+    private static String first(String current, String value) {
+        return current != null ? current : value;
+    }
+
+    private static void readValue(XMLStreamReader reader, ReadingOf field, String attribute, float[] values,
+                                  boolean[] seen) throws XMLStreamException {
+        String value = reader.getAttributeValue(null, attribute);
+        if (value != null && !seen[field.ordinal()]) {
+            seen[field.ordinal()] = true;
+            values[field.ordinal()] = parseFloat(value);
+        }
+        skip(reader);
+    }
+
+    /**
+     * Returns all text inside the current element, including that of nested elements, and moves past its end.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                        text.append(reader.getText());
+                default -> {
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static float parseFloat(String s) {
+        if (s != null) {
+            try {
+                return Float.parseFloat(s);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return ReadingStore.MISSING;
+    }
+
+    /**
+     * Maps a province code, treating missing or unknown codes as {@link Province#XX} instead of failing the month.
+     */
+    private static Province parseProvince(String code) {
+        if (code != null) {
+            try {
+                return Province.valueOf(code.trim());
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return Province.XX;
+    }
+}
@@ -1,169 +1,461 @@
 package weather;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import okhttp3.*;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import weather.enums.Province;
 import weather.enums.ReadingOf;
 import weather.enums.Season;
 import weather.enums.StationsOption;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringReader;
-import java.lang.reflect.Field;
-import java.lang.reflect.Type;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Objects;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Data {
+    static final String SNAPSHOT_FILE = "stations.bin", JSON_FILE = "stations.json";
+    static final String MANIFEST_FILE = "fetch_manifest.txt", CACHE_DIR = "cache";
+    static final int START_YEAR = 1850;
+    private static final int CHECKPOINT_PERIODS = 120, REFETCH_MONTHS = 2;
+
+    private static final QueryMetrics CUBE_SINGLE = new QueryMetrics("cube", "single"),
+            CUBE_RANGE = new QueryMetrics("cube", "range"), SCAN_SINGLE = new QueryMetrics("scan", "single"),
+            SCAN_RANGE = new QueryMetrics("scan", "range"), RADIUS_SINGLE = new QueryMetrics("radius", "single"),
+            RADIUS_RANGE = new QueryMetrics("radius", "range");
 
     ArrayList<Station> stations;
+    private DataCube cube;
+    private StationIndex index;
+    private boolean cubeEnabled, parallelEnabled;
+    private final Downloader.Builder downloader = new Downloader.Builder()
+            .baseUrl(System.getProperty("weather.baseUrl", Downloader.DEFAULT_BASE_URL));
 
     public Data() {
         stations = new ArrayList<>();
     }
 
-    private static boolean isWithin(float distanceKM, float lat1, float lat2, float lon1, float lon2) {
-        final int R = 6371; // Radius of the earth
+    /**
+     * When enabled, the first query the cube can answer aggregates the stations into a province, year and month
+     * cube, which then answers every query without a radius or a single-month percentile. Building it reads every
+     * reading, so it is left until then rather than done in {@link #load()}, which only maps the snapshot.
+     */
+    public void setCubeEnabled(boolean cubeEnabled) {
+        this.cubeEnabled = cubeEnabled;
+    }
+
+    /**
+     * When enabled, queries that scan readings split the stations across the common fork/join pool. Answers are
+     * identical either way.
+     */
+    public void setParallelEnabled(boolean parallelEnabled) {
+        this.parallelEnabled = parallelEnabled;
+    }
 
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c * 1000; // convert to meters
+    /**
+     * Sets the climate summary service that {@link #download()} fetches from, such as a local
+     * {@code StandInServer} from the benchmarks. It defaults to the {@code weather.baseUrl} system property, or else
+     * the real service.
+     */
+    public void setBaseUrl(String baseUrl) {
+        downloader.baseUrl(baseUrl);
+    }
 
-        distance = Math.pow(distance, 2);
+    /**
+     * Sets how many months {@link #download()} fetches at once.
+     */
+    public void setDownloadConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Download concurrency must be at least 1, not " + concurrency);
+        }
+        downloader.concurrency(concurrency);
+    }
 
-        return (Math.sqrt(distance) <= distanceKM * 1000);
+    /**
+     * Caps the requests {@link #download()} starts per second, or lifts the cap if zero.
+     */
+    public void setDownloadRate(double requestsPerSecond) {
+        if (!(requestsPerSecond >= 0)) {
+            throw new IllegalArgumentException("Download rate must be zero or more, not " + requestsPerSecond);
+        }
+        downloader.requestsPerSecond(requestsPerSecond);
+    }
+
+    /**
+     * Replaces the stations with ones that did not come from the data files and rebuilds the indexes.
+     */
+    void setStations(ArrayList<Station> stations) {
+        this.stations = stations;
+        buildIndexes();
+    }
+
+    private synchronized void buildIndexes() {
+        index = null;
+        cube = null;
     }
 
     public float query(Query query) {
-        ArrayList<Station> validStations = stations;
+        long start = System.nanoTime();
+        if (useCube(query)) {
+            DataCube cube = getCube();
+            float result = cube.query(query);
+            CUBE_SINGLE.record(start, query.year == 0 ? cube.cells(query, Integer.MIN_VALUE, Integer.MAX_VALUE)
+                    : cube.cells(query, query.year, query.year));
+            return result;
+        }
+        ArrayList<Station> selected = selectStations(query);
+        Aggregate aggregate = QueryPlan.compile(query).execute(selected, query.year, parallelEnabled);
+        (query.withinRangeKM != 0 ? RADIUS_SINGLE : SCAN_SINGLE).record(start, aggregate.scanned);
+        return aggregate.result(0, query.stationsOption);
+    }
 
-        if (query.province != null && query.province != Province.CANADA) {
-            validStations = new ArrayList<>();
-            for (Station s : stations) {
-                if (s.getProvince() == query.province) {
-                    validStations.add(s);
-                }
-            }
+    /**
+     * Runs the query once for every year from {@code startYear} to {@code endYear} inclusive, ignoring the year
+     * set on the query, in a single pass over the readings. Years without data are {@link Float#MIN_VALUE}.
+     */
+    public float[] queryRange(Query query, int startYear, int endYear) {
+        long start = System.nanoTime();
+        if (useCube(query)) {
+            DataCube cube = getCube();
+            float[] results = cube.queryRange(query, startYear, endYear);
+            CUBE_RANGE.record(start, cube.cells(query, startYear, endYear));
+            return results;
+        }
+        ArrayList<Station> selected = selectStations(query);
+        Aggregate aggregate = QueryPlan.compile(query).executeRange(selected, startYear, endYear, parallelEnabled);
+        (query.withinRangeKM != 0 ? RADIUS_RANGE : SCAN_RANGE).record(start, aggregate.scanned);
+        return aggregate.results(query.stationsOption);
+    }
+
+    /**
+     * The cube answers queries without a radius, except percentiles of a single month.
+     */
+    private boolean useCube(Query query) {
+        return cubeEnabled && DataCube.answers(query);
+    }
+
+    private static long readings(List<Station> stations) {
+        long n = 0;
+        for (Station s : stations) {
+            n += s.getReadings().size();
+        }
+        return n;
+    }
+
+    /**
+     * Latency and rows scanned of one kind of query: the readings a scan visited, whether or not they matched,
+     * or the cube cells read.
+     */
+    private static class QueryMetrics {
+        private final Metrics.Histogram seconds, rows;
+
+        QueryMetrics(String path, String kind) {
+            seconds = Metrics.histogram("weather_query_seconds", "Query latency", Metrics.SECONDS,
+                    "path", path, "kind", kind);
+            rows = Metrics.histogram("weather_query_rows_scanned", "Readings or cube cells visited per query",
+                    Metrics.SIZES, "path", path, "kind", kind);
         }
 
+        void record(long startNanos, long rowsScanned) {
+            seconds.observeSince(startNanos);
+            rows.observe(rowsScanned);
+        }
+    }
+
+    private ArrayList<Station> selectStations(Query query) {
         if (query.withinRangeKM != 0) {
+            return getIndex().within(query.withinRangeKM, query.latitude, query.longitude, query.province);
+        }
+
+        ArrayList<Station> validStations = stations;
+        if (query.province != null && query.province != Province.CANADA) {
             validStations = new ArrayList<>();
             for (Station s : stations) {
-                if (isWithin(query.withinRangeKM, s.getLatitude(), query.latitude, s.getLongitude(), query.longitude)) {
+                if (s.getProvince() == query.province) {
                     validStations.add(s);
                 }
             }
         }
+        return validStations;
+    }
 
-        ArrayList<Station.Reading> validReadings = new ArrayList<>();
-        for (Station s : validStations) {
-            for (Station.Reading r : s.getReadings()) {
-                if ((query.year == 0 || query.year == r.getYear())
-                        && (query.month == 0 || query.month == r.getMonth())
-                        && ((query.season == null || query.season == Season.ALL) || query.season == r.getSeason())) {
-                    validReadings.add(r);
-                }
-            }
+    private synchronized DataCube getCube() {
+        if (cube == null) {
+            cube = DataCube.build(stations);
         }
+        return cube;
+    }
 
-        float total = 0, max = Float.MIN_VALUE, min = Float.MAX_VALUE;
-        int count = 0;
-        for (Station.Reading r : validReadings) {
-            try {
-                Field field = r.getClass().getDeclaredField(query.readingOf.toString());
-                field.setAccessible(true);
-                float value = (float) field.get(r);
-                if (value != Float.MIN_VALUE) {
-                    count++;
-                    total += value;
-
-                    if (value > max) {
-                        max = value;
-                    }
+    private synchronized StationIndex getIndex() {
+        if (index == null) {
+            index = new StationIndex(stations);
+        }
+        return index;
+    }
 
-                    if (value < min) {
-                        min = value;
-                    }
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                e.printStackTrace();
+    /**
+     * Opens the binary snapshot, first converting stations.json into one if that is all there is.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        stations = new ArrayList<>();
+        try {
+            if (!Files.exists(Paths.get(SNAPSHOT_FILE)) && Files.exists(Paths.get(JSON_FILE))) {
+                importJson();
             }
+            stations = Snapshot.read(Paths.get(SNAPSHOT_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        buildIndexes();
+        recordLoad("snapshot", start);
+    }
 
-        if (count > 0) {
-            return switch (query.stationsOption) {
-                case AVERAGE -> total / count;
-                case EXTREME_MAX -> max;
-                case EXTREME_MIN -> min;
-            };
-        }
-        return Float.MIN_VALUE;
+    /**
+     * Records how long a load took, including the indexes, and the size of what it loaded.
+     */
+    private void recordLoad(String source, long startNanos) {
+        Metrics.histogram("weather_load_seconds", "Time to load the dataset and build its indexes", Metrics.SECONDS,
+                "source", source).observeSince(startNanos);
+        Runtime runtime = Runtime.getRuntime();
+        long heapAfterLoad = runtime.totalMemory() - runtime.freeMemory();
+        Metrics.gauge("weather_load_heap_used_bytes", "Heap in use right after the last load", () -> heapAfterLoad);
+        ArrayList<Station> loaded = stations;
+        long readings = readings(loaded);
+        Metrics.gauge("weather_stations", "Stations loaded", loaded::size);
+        Metrics.gauge("weather_readings", "Readings loaded", () -> readings);
+        Metrics.gauge("weather_heap_used_bytes", "Heap in use", () -> runtime.totalMemory() - runtime.freeMemory());
+        Metrics.gauge("weather_heap_max_bytes", "Maximum heap size", runtime::maxMemory);
     }
 
-    public void load() {
+    /**
+     * One-shot conversion of stations.json into the binary snapshot read by {@link #load()}.
+     */
+    public void importJson() throws IOException {
+        ArrayList<Station> imported = new StationsJsonReader(null, 0, 0).read(Paths.get(JSON_FILE));
+        Snapshot.write(Paths.get(SNAPSHOT_FILE), imported);
+    }
+
+    /**
+     * Streams stations.json straight into memory, keeping only one province and a range of years.
+     *
+     * @param province  the province to keep, or null or {@link Province#CANADA} for all
+     * @param startYear first year to keep, or 0 for no lower bound
+     * @param endYear   last year to keep, or 0 for no upper bound
+     */
+    public void loadJson(Province province, int startYear, int endYear) {
+        long start = System.nanoTime();
         stations = new ArrayList<>();
         try {
-            Gson gson = new Gson();
-            Type type = new TypeToken<ArrayList<Station>>() {
-            }.getType();
-            stations = gson.fromJson(Files.readString(Paths.get("stations.json")), type);
+            stations = new StationsJsonReader(province, startYear, endYear).read(Paths.get(JSON_FILE));
         } catch (IOException e) {
             e.printStackTrace();
         }
+        buildIndexes();
+        recordLoad("json", start);
     }
 
     public void download() {
+        Downloader downloader = this.downloader.build();
+        try {
+            download(downloader);
+        } finally {
+            downloader.shutdown();
+        }
+    }
+
+    /**
+     * Brings the dataset up to date: merges every month from {@link #START_YEAR} to the last complete month that
+     * is not yet in the fetch manifest into the existing stations, writes a snapshot and then the manifest in the
+     * background every {@link #CHECKPOINT_PERIODS} merged months, and again at the end. An interrupted run resumes
+     * from the last checkpoint, and later runs only fetch the months published since.
+     * <p>
+     * The last {@link #REFETCH_MONTHS} months may still be preliminary, so they are fetched on every run and
+     * replace what was merged before, unless the new response has no stations. Older months are final, so an empty
+     * one is recorded like any other and never fetched again.
+     */
+    void download(Downloader downloader) {
         try {
-            ArrayList<Thread> threads = new ArrayList<>();
-            ArrayList<DownloadMonthRunnable> months = new ArrayList<>();
-            for (int i=1; i<13; i++){
-                DownloadMonthRunnable m = new DownloadMonthRunnable(i);
-                months.add(m);
-                Thread t = new Thread(m);
-                threads.add(t);
-                t.start();
+            FetchManifest manifest = FetchManifest.load(Paths.get(MANIFEST_FILE));
+            ArrayList<Station> existing = readExisting();
+            for (Station s : existing) {
+                manifest.addPresent(s.getReadings());
             }
+            StationRegistry registry = new StationRegistry(existing);
 
-            for (Thread t : threads){
-                t.join();
+            YearMonth lastMonth = YearMonth.now().minusMonths(1), refetchFrom = refetchFrom();
+            List<int[]> periods = manifest.missing(YearMonth.of(START_YEAR, 1), refetchFrom.minusMonths(1));
+            for (YearMonth p = refetchFrom; !p.isAfter(lastMonth); p = p.plusMonths(1)) {
+                periods.add(new int[]{p.getYear(), p.getMonthValue()});
             }
+            System.out.println(periods.size() + " months to download up to " + lastMonth);
+
+            ResponseCache cache = ResponseCache.open(Paths.get(CACHE_DIR));
+            AtomicInteger merged = new AtomicInteger();
+            AtomicBoolean checkpointQueued = new AtomicBoolean();
+            List<int[]> failed;
+            // Checkpoints run on their own thread: a handler that threw would have its month retried and merged
+            // twice, and one that wrote a snapshot would hold its download permit the whole time.
+            try (ExecutorService checkpoints = Executors.newSingleThreadExecutor()) {
+                failed = downloader.download(periods, (year, month, body) -> {
+                    StationRegistry.Batch batch = registry.newBatch(year, month);
+                    ResponseCache.Writer cached = cache.begin(year, month);
+                    try {
+                        parseInto(registry, batch, cached.capture(body), "download");
+                        cached.commit();
+                    } catch (Exception e) {
+                        cached.abort();
+                        throw e;
+                    }
 
-            HashMap<String, Station> stationsId = new HashMap<>();
-            for (DownloadMonthRunnable dm : months){
-                for (Station s : dm.getStations()){
-                    if (stationsId.containsKey(s.getIdentifier())){
-                        stationsId.get(s.getIdentifier()).getReadings().addAll(s.getReadings());
-                    }else {
-                        stationsId.put(s.getIdentifier(), s);
+                    if (YearMonth.of(year, month).isBefore(refetchFrom)) {
+                        batch.commit(() -> manifest.add(year, month));
+                    } else if (batch.size() > 0) {
+                        batch.replace(() -> manifest.add(year, month));
+                    } else {
+                        System.out.println("No stations yet in " + YearMonth.of(year, month)
+                                + ", keeping what was there");
+                        return;
                     }
-                }
+                    if (merged.incrementAndGet() % CHECKPOINT_PERIODS == 0
+                            && checkpointQueued.compareAndSet(false, true)) {
+                        checkpoints.execute(() -> {
+                            checkpointQueued.set(false);
+                            try {
+                                registry.consistent(() -> checkpoint(registry, manifest, cache));
+                            } catch (IOException e) {
+                                System.out.println("Checkpoint failed, the next one will try again: "
+                                        + e.getLocalizedMessage());
+                            }
+                        });
+                    }
+                });
+            }
+            if (!failed.isEmpty()) {
+                System.out.println(failed.size() + " months could not be downloaded and will be retried next run");
             }
 
-            stations = new ArrayList<>(stationsId.values());
-            Files.writeString(Paths.get("stations.json"), new Gson().toJson(stations));
+            // Put the readings in time order first, so the final snapshot loads with its year indexes.
+            long start = System.nanoTime();
+            stations = registry.toList();
+            for (Station s : stations) {
+                s.getReadings().trimToSize();
+            }
+            if (merged.get() > 0) {
+                checkpoint(registry, manifest, cache);
+            }
+            buildIndexes();
+            recordLoad("download", start);
         } catch (Exception e) {
             System.out.println(e.getLocalizedMessage());
         }
     }
 
+    /**
+     * Returns the first of the last {@link #REFETCH_MONTHS} complete months, which may still be preliminary.
+     */
+    private static YearMonth refetchFrom() {
+        return YearMonth.now().minusMonths(REFETCH_MONTHS);
+    }
+
+    private ArrayList<Station> readExisting() throws IOException {
+        if (Files.exists(Paths.get(SNAPSHOT_FILE))) {
+            return Snapshot.read(Paths.get(SNAPSHOT_FILE));
+        }
+        if (Files.exists(Paths.get(JSON_FILE))) {
+            return new StationsJsonReader(null, 0, 0).read(Paths.get(JSON_FILE));
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Parses one month into {@code batch}. When the body comes straight from the network, the parse time includes
+     * waiting for it to arrive.
+     */
+    private static void parseInto(StationRegistry registry, StationRegistry.Batch batch, InputStream xml,
+                                  String source) throws IOException {
+        long start = System.nanoTime();
+        int[] stations = new int[1];
+        ClimateSummaryParser.parse(xml, (identifier, name, province, latitude, longitude, values) -> {
+            batch.add(registry.getOrCreate(identifier, name, province, latitude, longitude), values);
+            stations[0]++;
+        });
+        Metrics.histogram("weather_parse_seconds", "Time to parse one monthly response", Metrics.SECONDS,
+                "source", source).observeSince(start);
+        Metrics.counter("weather_parsed_stations_total", "Station readings parsed", "source", source)
+                .add(stations[0]);
+    }
+
+    private static void checkpoint(StationRegistry registry, FetchManifest manifest, ResponseCache cache) throws IOException {
+        cache.saveIndex();
+        Snapshot.write(Paths.get(SNAPSHOT_FILE), registry.toList());
+        manifest.save();
+    }
+
+    /**
+     * Rebuilds the dataset from the response cache alone, parsing the cached months in parallel without any
+     * network access. The snapshot and manifest are replaced with exactly the cached months.
+     */
+    public void rebuildFromCache() {
+        try {
+            ResponseCache cache = ResponseCache.open(Paths.get(CACHE_DIR));
+            List<YearMonth> periods = cache.periods();
+            System.out.println("Rebuilding from " + periods.size() + " cached months");
+
+            StationRegistry registry = new StationRegistry(List.of());
+            FetchManifest manifest = FetchManifest.empty(Paths.get(MANIFEST_FILE));
+            AtomicInteger failed = new AtomicInteger();
+            YearMonth refetchFrom = refetchFrom();
+            try (ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+                for (YearMonth period : periods) {
+                    executor.submit(() -> {
+                        StationRegistry.Batch batch = registry.newBatch(period.getYear(), period.getMonthValue());
+                        try {
+                            // Closing checks the CRC, so a corrupt entry fails before any of it is merged.
+                            try (InputStream in = cache.open(period)) {
+                                parseInto(registry, batch, in, "cache");
+                            }
+                            batch.commit(() -> {
+                                if (batch.size() > 0 || period.isBefore(refetchFrom)) {
+                                    manifest.add(period.getYear(), period.getMonthValue());
+                                }
+                            });
+                        } catch (IOException | RuntimeException e) {
+                            System.out.println("Failed to parse cached " + period + ": " + e);
+                            failed.incrementAndGet();
+                        }
+                    });
+                }
+            }
+            if (failed.get() > 0) {
+                System.out.println(failed.get() + " cached months could not be parsed and will be downloaded next run");
+            }
+
+            long start = System.nanoTime();
+            stations = registry.toList();
+            for (Station s : stations) {
+                s.getReadings().trimToSize();
+            }
+            Snapshot.write(Paths.get(SNAPSHOT_FILE), stations);
+            manifest.save();
+            buildIndexes();
+            recordLoad("cache", start);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * An immutable query, safe to share between threads.
+     */
     static class Query {
         final Province province;
         final Season season;
-        int year, month;
+        final int year, month;
         final ReadingOf readingOf;
         final float withinRangeKM, longitude, latitude;
         final StationsOption stationsOption;
@@ -180,8 +472,16 @@ public class Data {
             stationsOption = builder.stationsOption;
         }
 
-        public void setYear(int year){
-            this.year = year;
+        /**
+         * Returns this query for another year, where 0 means all years.
+         */
+        public Query withYear(int year) {
+            if (year == this.year) {
+                return this;
+            }
+            return new Query.Builder().province(province).season(season).year(year).month(month)
+                    .readingOf(readingOf).withinRangeKM(withinRangeKM, latitude, longitude)
+                    .stationsOption(stationsOption).build();
         }
 
         public static class Builder {
@@ -246,91 +546,4 @@ public class Data {
             }
         }
     }
-
-    private static class DownloadMonthRunnable implements Runnable {
-
-        private static final int START_YEAR = 1850, END_YEAR = 2023;
-        private final int month;
-        private final ArrayList<Station> stations;
-
-        public DownloadMonthRunnable(int month) {
-            this.month = month;
-            stations = new ArrayList<>();
-        }
-
-        public String Get(int year) {
-            HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse("https://climate.weather.gc.ca/prods_servs/cdn_climate_summary_report_e.html")).newBuilder();
-            urlBuilder.addQueryParameter("intYear", String.valueOf(year));
-            urlBuilder.addQueryParameter("intMonth", String.valueOf(month));
-            urlBuilder.addQueryParameter("dataFormat", "xml");
-            String url = urlBuilder.build().toString();
-            System.out.println("GET " + url);
-            Request request = new Request.Builder().url(url).build();
-            OkHttpClient client = new OkHttpClient();
-
-            try {
-                Response response = client.newCall(request).execute();
-                ResponseBody rb = response.body();
-
-                if (rb != null){
-                    String s = rb.string();
-                    File file = new File("raw_stations.txt");
-                    FileWriter fr = new FileWriter(file, true);
-                    fr.write(s);
-                    fr.close();
-
-                    return s;
-                }
-                return Get(year);
-
-            } catch (IOException e) {
-                e.printStackTrace();
-                try {
-                    Thread.sleep(10000);
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
-                }
-                return Get(year);
-            }
-        }
-
-        @Override
-        public void run() {
-            try {
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                for (int i = START_YEAR; i < END_YEAR; i++) {
-                    String xmlString = Get(i);
-                    Document doc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xmlString)));
-                    NodeList stationsXml = doc.getElementsByTagName("station");
-                    if (stationsXml.getLength() > 0) {
-                        for (int k = 0; k < stationsXml.getLength(); k++) {
-
-                            Station newStation = new Station(stationsXml.item(k), i, month);
-                            Station existingStation = getStation(newStation.getIdentifier());
-                            if (existingStation != null) {
-                                existingStation.addReading(stationsXml.item(k), i, month);
-                            } else {
-                                stations.add(newStation);
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        public Station getStation(String id) {
-            for (Station station : stations) {
-                if (station.getIdentifier().equals(id)) {
-                    return station;
-                }
-            }
-            return null;
-        }
-
-        public ArrayList<Station> getStations() {
-            return stations;
-        }
-    }
 }
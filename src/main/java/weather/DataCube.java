@@ -0,0 +1,221 @@
+package weather;
+
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Sum, count, min and max of every field per (province, year, month), built once from the stations, and a
+ * {@link QuantileSketch} of every field per (province, year, season).
+ * <p>
+ * Any query without a radius is answered by rolling up month cells: seasons are a set of months and
+ * {@link Province#CANADA} is every province. Averages are summed in double precision per cell, so they can
+ * differ from a scan of the readings in the last bits of the float result. Percentiles merge the season sketches
+ * instead, which is exact, so they equal a scan to the bit; a percentile of a single month is left to a scan.
+ */
+class DataCube {
+    private static final ReadingOf[] FIELDS = ReadingOf.values();
+    // Stations without a province only count towards the national roll-up.
+    private static final int UNKNOWN_PROVINCE = Province.values().length;
+    private static final int PROVINCES = UNKNOWN_PROVINCE + 1;
+    private static final Season[] SEASONS = {Season.SPRING, Season.SUMMER, Season.AUTUMN, Season.WINTER};
+
+    private final int startYear, years;
+    private final double[] sum;
+    private final int[] count;
+    private final float[] min, max;
+    private final QuantileSketch[] sketches;
+
+    private DataCube(int startYear, int endYear) {
+        this.startYear = startYear;
+        this.years = Math.max(endYear - startYear + 1, 0);
+        int cells = PROVINCES * FIELDS.length * years * 12;
+        sum = new double[cells];
+        count = new int[cells];
+        min = new float[cells];
+        max = new float[cells];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        sketches = new QuantileSketch[PROVINCES * FIELDS.length * years * SEASONS.length];
+    }
+
+    /**
+     * Aggregates the stations into a cube, filling each province's cells on its own thread.
+     */
+    static DataCube build(List<Station> stations) {
+        int startYear = Integer.MAX_VALUE, endYear = Integer.MIN_VALUE;
+        List<List<Station>> byProvince = new ArrayList<>();
+        for (int p = 0; p < PROVINCES; p++) {
+            byProvince.add(new ArrayList<>());
+        }
+        for (Station s : stations) {
+            ReadingStore readings = s.getReadings();
+            for (int i = 0; i < readings.size(); i++) {
+                startYear = Math.min(startYear, readings.getYear(i));
+                endYear = Math.max(endYear, readings.getYear(i));
+            }
+            byProvince.get(slot(s.getProvince())).add(s);
+        }
+
+        if (startYear > endYear) {
+            startYear = 0;
+            endYear = -1;
+        }
+
+        DataCube cube = new DataCube(startYear, endYear);
+        IntStream.range(0, PROVINCES).parallel().forEach(p -> {
+            for (Station s : byProvince.get(p)) {
+                cube.add(p, s.getReadings());
+            }
+        });
+        return cube;
+    }
+
+    private static int slot(Province province) {
+        return province == null ? UNKNOWN_PROVINCE : province.ordinal();
+    }
+
+    private int cell(int province, int field, int year, int month) {
+        return ((province * FIELDS.length + field) * years + year - startYear) * 12 + month - 1;
+    }
+
+    private int sketchCell(int province, int field, int year, Season season) {
+        return ((province * FIELDS.length + field) * years + year - startYear) * SEASONS.length + season.ordinal();
+    }
+
+    private void add(int province, ReadingStore readings) {
+        for (int i = 0; i < readings.size(); i++) {
+            int month = readings.getMonth(i);
+            if (month < 1 || month > 12) {
+                continue;
+            }
+            for (ReadingOf f : FIELDS) {
+                if (!readings.isMissing(f, i)) {
+                    float value = readings.get(f, i);
+                    int c = cell(province, f.ordinal(), readings.getYear(i), month);
+                    sum[c] += value;
+                    count[c]++;
+                    min[c] = Math.min(min[c], value);
+                    max[c] = Math.max(max[c], value);
+
+                    int k = sketchCell(province, f.ordinal(), readings.getYear(i), ReadingStore.seasonOf(month));
+                    if (sketches[k] == null) {
+                        sketches[k] = new QuantileSketch();
+                    }
+                    sketches[k].add(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the cube can answer the query: any option without a radius, but percentiles only for a
+     * season or the whole year.
+     */
+    static boolean answers(Data.Query query) {
+        return query.withinRangeKM == 0 && (!query.stationsOption.isPercentile() || query.month == 0);
+    }
+
+    float query(Data.Query query) {
+        if (query.year == 0) {
+            return rollUp(query, startYear, startYear + years - 1);
+        }
+        return rollUp(query, query.year, query.year);
+    }
+
+    float[] queryRange(Data.Query query, int startYear, int endYear) {
+        float[] results = new float[endYear - startYear + 1];
+        for (int year = startYear; year <= endYear; year++) {
+            results[year - startYear] = rollUp(query, year, year);
+        }
+        return results;
+    }
+
+    /**
+     * Returns how many cells answering the query for {@code [fromYear, toYear]} visits.
+     */
+    long cells(Data.Query query, int fromYear, int toYear) {
+        QueryPlan plan = QueryPlan.compile(query);
+        int months = 0;
+        if (query.stationsOption.isPercentile()) {
+            months = query.season == null || query.season == Season.ALL ? SEASONS.length : 1;
+        } else {
+            for (int month = 1; month <= 12; month++) {
+                if (plan.acceptsMonth(month)) {
+                    months++;
+                }
+            }
+        }
+        int provinces = query.province != null && query.province != Province.CANADA ? 1 : PROVINCES;
+        long years = Math.min(toYear, startYear + this.years - 1) - (long) Math.max(fromYear, startYear) + 1;
+        return Math.max(0, years) * provinces * months;
+    }
+
+    private float rollUp(Data.Query query, int fromYear, int toYear) {
+        QueryPlan plan = QueryPlan.compile(query);
+        int field = query.readingOf.ordinal();
+        int firstProvince = 0, lastProvince = PROVINCES - 1;
+        if (query.province != null && query.province != Province.CANADA) {
+            firstProvince = lastProvince = query.province.ordinal();
+        }
+        fromYear = Math.max(fromYear, startYear);
+        toYear = Math.min(toYear, startYear + years - 1);
+        if (query.stationsOption.isPercentile()) {
+            return quantile(query, field, firstProvince, lastProvince, fromYear, toYear);
+        }
+
+        double total = 0;
+        float max = Float.MIN_VALUE, min = Float.MAX_VALUE;
+        int n = 0;
+        for (int p = firstProvince; p <= lastProvince; p++) {
+            for (int year = fromYear; year <= toYear; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    if (!plan.acceptsMonth(month)) {
+                        continue;
+                    }
+                    int c = cell(p, field, year, month);
+                    if (count[c] > 0) {
+                        total += sum[c];
+                        n += count[c];
+                        max = Math.max(max, this.max[c]);
+                        min = Math.min(min, this.min[c]);
+                    }
+                }
+            }
+        }
+
+        if (n > 0) {
+            return switch (query.stationsOption) {
+                case AVERAGE -> (float) (total / n);
+                case EXTREME_MAX -> max;
+                case EXTREME_MIN -> min;
+                default -> throw new IllegalArgumentException("The cube has no " + query.stationsOption);
+            };
+        }
+        return ReadingStore.MISSING;
+    }
+
+    private float quantile(Data.Query query, int field, int firstProvince, int lastProvince, int fromYear,
+                           int toYear) {
+        boolean allSeasons = query.season == null || query.season == Season.ALL;
+        QuantileSketch merged = new QuantileSketch();
+        for (int p = firstProvince; p <= lastProvince; p++) {
+            for (int year = fromYear; year <= toYear; year++) {
+                for (Season season : SEASONS) {
+                    if (allSeasons || season == query.season) {
+                        QuantileSketch sketch = sketches[sketchCell(p, field, year, season)];
+                        if (sketch != null) {
+                            merged.merge(sketch);
+                        }
+                    }
+                }
+            }
+        }
+        return merged.quantile(query.stationsOption.getQuantile());
+    }
+}
@@ -0,0 +1,280 @@
+package weather;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches climate summaries for many (year, month) periods at once.
+ * <p>
+ * Every period is an independent task on its own virtual thread. All tasks share one {@link OkHttpClient}, and
+ * hence one connection pool, while a semaphore bounds how many requests are in flight and an optional rate limit
+ * spaces out request starts. Failed requests are retried with exponential backoff and jitter up to a fixed number
+ * of attempts, after which the period is reported as failed and the others carry on.
+ */
+class Downloader {
+    static final String DEFAULT_BASE_URL = "https://climate.weather.gc.ca/prods_servs/cdn_climate_summary_report_e.html";
+
+    private final HttpUrl baseUrl;
+    private final OkHttpClient client;
+    private final Semaphore permits;
+    private final long requestIntervalNanos;
+    private final int maxRetries;
+    private final long initialBackoffMillis, maxBackoffMillis;
+    private long nextRequestNanos;
+
+    private Downloader(Downloader.Builder builder) {
+        baseUrl = Objects.requireNonNull(HttpUrl.parse(builder.baseUrl), "Invalid base URL " + builder.baseUrl);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(builder.concurrency);
+        dispatcher.setMaxRequestsPerHost(builder.concurrency);
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(builder.concurrency, 5, TimeUnit.MINUTES))
+                .connectTimeout(builder.timeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(builder.timeoutSeconds, TimeUnit.SECONDS)
+                .build();
+        permits = new Semaphore(builder.concurrency);
+        requestIntervalNanos = builder.requestsPerSecond > 0 ? (long) (1e9 / builder.requestsPerSecond) : 0;
+        maxRetries = builder.maxRetries;
+        initialBackoffMillis = builder.initialBackoffMillis;
+        maxBackoffMillis = builder.maxBackoffMillis;
+    }
+
+    /**
+     * Consumes the body of one fetched period. An {@link IOException}, such as a body cut off mid-stream, retries
+     * the whole period, so a handler must not publish anything until it has read the body to the end.
+     */
+    interface PeriodHandler {
+        void handle(int year, int month, InputStream body) throws Exception;
+    }
+
+    /**
+     * Fetches every period and hands each body to {@code handler}, returning once all tasks have finished.
+     * Handlers run concurrently and must be thread-safe.
+     *
+     * @param periods pairs of {year, month}
+     * @return the periods that could not be fetched or handled
+     */
+    List<int[]> download(List<int[]> periods, PeriodHandler handler) throws InterruptedException {
+        List<int[]> failed = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int[] period : periods) {
+                executor.submit(() -> {
+                    try {
+                        fetch(period[0], period[1], handler);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        addFailed(failed, period);
+                    } catch (Exception e) {
+                        System.out.println("Failed " + period[0] + "-" + period[1] + ": " + e.getLocalizedMessage());
+                        Metrics.counter("weather_download_failed_periods_total", "Periods given up on after retries",
+                                "decade", decade(period[0])).inc();
+                        addFailed(failed, period);
+                    }
+                    int n = done.incrementAndGet();
+                    if (n % 100 == 0 || n == periods.size()) {
+                        System.out.println("Downloaded " + n + "/" + periods.size() + " periods");
+                    }
+                });
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return failed;
+    }
+
+    private static void addFailed(List<int[]> failed, int[] period) {
+        synchronized (failed) {
+            failed.add(period);
+        }
+    }
+
+    /**
+     * Fetches one period and streams its body to {@code handler}, retrying failures with backoff.
+     */
+    void fetch(int year, int month, PeriodHandler handler) throws Exception {
+        HttpUrl url = baseUrl.newBuilder()
+                .addQueryParameter("intYear", String.valueOf(year))
+                .addQueryParameter("intMonth", String.valueOf(month))
+                .addQueryParameter("dataFormat", "xml")
+                .build();
+        Request request = new Request.Builder().url(url).build();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                execute(request, year, month, handler);
+                return;
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    throw new IOException("Giving up on " + url + " after " + (attempt + 1) + " attempts", e);
+                }
+                long delay = backoffMillis(attempt);
+                System.out.println("Retrying " + url + " in " + delay + " ms: " + e.getLocalizedMessage());
+                Metrics.counter("weather_download_retries_total", "Requests retried after a failure",
+                        "decade", decade(year)).inc();
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Labels download metrics by decade: one series per (year, month) would mean thousands per metric, while
+     * decades still show how response sizes and times change over the record.
+     */
+    private static String decade(int year) {
+        return year / 10 * 10 + "s";
+    }
+
+    private void execute(Request request, int year, int month, PeriodHandler handler) throws Exception {
+        permits.acquire();
+        String decade = decade(year);
+        long start = 0;
+        long[] bytes = new long[1];
+        String outcome = "error";
+        try {
+            awaitRateLimit();
+            start = System.nanoTime();
+            System.out.println("GET " + request.url());
+            try (Response response = client.newCall(request).execute()) {
+                ResponseBody rb = response.body();
+                if (!response.isSuccessful()) {
+                    throw new IOException("HTTP " + response.code());
+                }
+                if (rb == null) {
+                    throw new IOException("Empty response");
+                }
+                handler.handle(year, month, new FilterInputStream(rb.byteStream()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            bytes[0]++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            bytes[0] += n;
+                        }
+                        return n;
+                    }
+                });
+                outcome = "ok";
+            }
+        } finally {
+            permits.release();
+            if (start != 0) {
+                Metrics.histogram("weather_download_request_seconds", "Time from sending a request to handling "
+                        + "its body", Metrics.SECONDS, "decade", decade).observeSince(start);
+                Metrics.counter("weather_download_requests_total", "Requests sent", "decade", decade,
+                        "outcome", outcome).inc();
+                Metrics.counter("weather_download_bytes_total", "Response bytes read", "decade", decade)
+                        .add(bytes[0]);
+            }
+        }
+    }
+
+    private void awaitRateLimit() throws InterruptedException {
+        if (requestIntervalNanos == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextRequestNanos);
+            nextRequestNanos = start + requestIntervalNanos;
+            wait = start - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the capped delay plus a random share of the other half.
+     */
+    private long backoffMillis(int attempt) {
+        long delay = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    public static class Builder {
+        private String baseUrl;
+        private int concurrency, maxRetries, timeoutSeconds;
+        private double requestsPerSecond;
+        private long initialBackoffMillis, maxBackoffMillis;
+
+        public Builder() {
+            baseUrl = DEFAULT_BASE_URL;
+            concurrency = 16;
+            requestsPerSecond = 0;
+            maxRetries = 6;
+            initialBackoffMillis = 1000;
+            maxBackoffMillis = 60000;
+            timeoutSeconds = 60;
+        }
+
+        public Downloader.Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Downloader.Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Downloader.Builder requestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        public Downloader.Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Downloader.Builder backoffMillis(long initialBackoffMillis, long maxBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        public Downloader.Builder timeoutSeconds(int timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+            return this;
+        }
+
+        public Downloader build() {
+            return new Downloader(this);
+        }
+    }
+}
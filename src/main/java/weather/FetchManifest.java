@@ -0,0 +1,97 @@
+package weather;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The set of (year, month) periods whose stations are already merged into the saved dataset, persisted as one
+ * {@code yyyy-mm} line per period.
+ * <p>
+ * It is only ever saved after the snapshot that contains those periods, so a crash in between leaves periods
+ * that are in the data but not the manifest. {@link #addPresent} recovers those, and any dataset written before
+ * the manifest existed, from the readings themselves.
+ */
+class FetchManifest {
+    private final Path path;
+    private final BitSet completed;
+
+    private FetchManifest(Path path, BitSet completed) {
+        this.path = path;
+        this.completed = completed;
+    }
+
+    static FetchManifest load(Path path) throws IOException {
+        BitSet completed = new BitSet();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    YearMonth period = YearMonth.parse(line);
+                    completed.set(index(period.getYear(), period.getMonthValue()));
+                }
+            }
+        }
+        return new FetchManifest(path, completed);
+    }
+
+    static FetchManifest empty(Path path) {
+        return new FetchManifest(path, new BitSet());
+    }
+
+    private static int index(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    synchronized boolean contains(int year, int month) {
+        return completed.get(index(year, month));
+    }
+
+    synchronized void add(int year, int month) {
+        completed.set(index(year, month));
+    }
+
+    /**
+     * Marks every period that has at least one reading in the store as completed.
+     */
+    synchronized void addPresent(ReadingStore readings) {
+        for (int i = 0; i < readings.size(); i++) {
+            int month = readings.getMonth(i);
+            if (month >= 1 && month <= 12) {
+                completed.set(index(readings.getYear(i), month));
+            }
+        }
+    }
+
+    /**
+     * Returns the periods from {@code first} to {@code last} inclusive that are not completed, as {year, month}.
+     */
+    synchronized List<int[]> missing(YearMonth first, YearMonth last) {
+        List<int[]> periods = new ArrayList<>();
+        for (YearMonth p = first; !p.isAfter(last); p = p.plusMonths(1)) {
+            if (!completed.get(index(p.getYear(), p.getMonthValue()))) {
+                periods.add(new int[]{p.getYear(), p.getMonthValue()});
+            }
+        }
+        return periods;
+    }
+
+    /**
+     * Writes the manifest to a temporary file and moves it into place.
+     */
+    synchronized void save() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = completed.nextSetBit(0); i >= 0; i = completed.nextSetBit(i + 1)) {
+            sb.append(YearMonth.of(i / 12, i % 12 + 1)).append('\n');
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temp, sb, StandardCharsets.UTF_8);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
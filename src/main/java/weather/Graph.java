@@ -1,11 +1,6 @@
 package weather;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.math3.fitting.PolynomialCurveFitter;
-import org.apache.commons.math3.fitting.WeightedObservedPoint;
-import org.apache.commons.math3.fitting.WeightedObservedPoints;
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.time.TimeSeries;
@@ -19,21 +14,38 @@ import weather.enums.Season;
 import weather.enums.StationsOption;
 
 import java.awt.*;
-import java.beans.PropertyVetoException;
 import java.io.File;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.Locale;
-import java.util.Queue;
 
 public class Graph {
     final Data data;
-    private final static int ROLLING_NUMBER = 7;
+    private final static String CHART_MANIFEST = "./output/charts_manifest.txt", TRENDS_FILE = "./output/trends.csv";
+    private final static String METRICS_DIR = "./output";
+    private final static String USAGE = """
+            Usage: Graph [options]
+              --rebuild-from-cache          rebuild the stations from cached responses instead of downloading
+              --base-url=URL                climate summary service to download from
+              --download-concurrency=N      months fetched at once
+              --download-rate=N             requests started per second, or 0 for no cap
+              --serve[=PORT]                answer queries over HTTP instead of drawing charts (port 8080)
+              --serve-address=HOST          address to serve on (loopback)
+              --trends                      write the trends instead of the charts
+              --svg                         draw SVG charts instead of PNG
+              --size=WIDTHxHEIGHT           chart size (2000x1000)
+              --png-compression=LEVEL       PNG deflate level (4)
+              --rolling=N[,N...]            rolling average windows in years (7)
+              --metrics-interval=SECONDS    also write the metrics every so often""";
+    private final static int START_YEAR = 1900, END_YEAR = 2022;
+    private static final Color VALUE_PAINT = Color.BLUE, TREND_PAINT = Color.RED;
+    private static final Color[] ROLLING_PAINTS = {Color.GREEN, Color.ORANGE, Color.MAGENTA, Color.CYAN};
+    private static final float VALUE_WIDTH = 2.0f, ROLLING_WIDTH = 3.0f, TREND_WIDTH = 1.0f;
+    private int[] rollingWindows = {7};
+    private ChartWriter chartWriter = new PngChartWriter(2000, 1000, 4);
 
     Graph() {
         data = new Data();
@@ -41,144 +53,277 @@ public class Graph {
 
     public static void main(String[] args) {
         Graph g = new Graph();
+        g.getData().setCubeEnabled(true);
 
-        if (!new File("stations.json").exists()){
+        boolean rebuildFromCache = false, svg = false, trendsOnly = false;
+        int width = 2000, height = 1000, compression = 4, servePort = 0;
+        String serveAddress = null;
+        for (String arg : args) {
+            if (arg.equals("--rebuild-from-cache")) {
+                rebuildFromCache = true;
+            } else if (arg.startsWith("--base-url=")) {
+                g.getData().setBaseUrl(arg.substring("--base-url=".length()));
+            } else if (arg.startsWith("--download-concurrency=")) {
+                g.getData().setDownloadConcurrency(Integer.parseInt(arg.substring("--download-concurrency=".length())));
+            } else if (arg.startsWith("--download-rate=")) {
+                g.getData().setDownloadRate(Double.parseDouble(arg.substring("--download-rate=".length())));
+            } else if (arg.equals("--serve")) {
+                servePort = 8080;
+            } else if (arg.startsWith("--serve=")) {
+                servePort = Integer.parseInt(arg.substring("--serve=".length()));
+            } else if (arg.startsWith("--serve-address=")) {
+                serveAddress = arg.substring("--serve-address=".length());
+            } else if (arg.equals("--trends")) {
+                trendsOnly = true;
+            } else if (arg.equals("--svg")) {
+                svg = true;
+            } else if (arg.startsWith("--size=")) {
+                String[] size = arg.substring("--size=".length()).split("x");
+                width = Integer.parseInt(size[0]);
+                height = Integer.parseInt(size[1]);
+            } else if (arg.startsWith("--png-compression=")) {
+                compression = Integer.parseInt(arg.substring("--png-compression=".length()));
+            } else if (arg.startsWith("--rolling=")) {
+                g.setRollingWindows(Arrays.stream(arg.substring("--rolling=".length()).split(","))
+                        .mapToInt(Integer::parseInt).toArray());
+            } else if (arg.startsWith("--metrics-interval=")) {
+                Metrics.dumpPeriodically(Paths.get(METRICS_DIR),
+                        Long.parseLong(arg.substring("--metrics-interval=".length())));
+            } else {
+                System.out.println("Unknown option " + arg);
+                System.out.println(USAGE);
+                System.exit(2);
+            }
+        }
+        g.setChartWriter(svg ? new SvgChartWriter(width, height) : new PngChartWriter(width, height, compression));
+        // Charts and trends already run one series per thread, so splitting each query as well would only add
+        // common pool workers on top of those threads. The server answers one query per request and splits them.
+        g.getData().setParallelEnabled(servePort != 0);
+
+        long start = System.nanoTime();
+        if (rebuildFromCache) {
+            g.getData().rebuildFromCache();
+            phase("rebuild", start);
+        } else {
             g.getData().download();
+            phase("download", start);
         }
 
-        g.getData().load();
-        g.createAllGraphs();
+        // Both leave the stations and their indexes ready, so the snapshot is only read if they produced nothing.
+        if (g.getData().stations.isEmpty()) {
+            start = System.nanoTime();
+            g.getData().load();
+            phase("load", start);
+        }
 
-//        Data.Query query = new Data.Query.Builder()
-//                .readingOf(ReadingOf.MAX_TEMP)
-//                .stationsOption(StationsOption.AVERAGE)
-//                .province(Province.CANADA)
-//                .season(Season.SUMMER)
-//                .build();
+        if (servePort != 0) {
+            g.serve(serveAddress, servePort);
+            return;
+        }
 
-//        g.createGraph(new File("test1.png"), "1900", 1900, 2022, query);
+        start = System.nanoTime();
+        if (trendsOnly) {
+            g.writeTrends();
+            phase("trends", start);
+        } else {
+            g.createAllGraphs();
+            phase("charts", start);
+        }
+
+        try {
+            Metrics.dump(Paths.get(METRICS_DIR));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void phase(String phase, long startNanos) {
+        double seconds = Metrics.since(startNanos);
+        Metrics.gauge("weather_job_phase_seconds", "Time spent in each phase of the job", () -> seconds,
+                "phase", phase);
+    }
+
+    /**
+     * Answers queries over the loaded data on {@code port} until the process is stopped. The server listens on
+     * {@code address}, or only on the loopback address if it is null.
+     */
+    void serve(String address, int port) {
+        try {
+            QueryServer.Builder builder = new QueryServer.Builder().port(port);
+            if (address != null) {
+                builder.address(InetAddress.getByName(address));
+            }
+            QueryServer server = builder.build(data);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+            InetSocketAddress bound = server.getAddress();
+            String host = bound.getHostString();
+            System.out.println("Serving queries on http://" + (host.contains(":") ? "[" + host + "]" : host) + ":"
+                    + bound.getPort() + "/query and /range");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     public Data getData() {
         return data;
     }
 
+    void setChartWriter(ChartWriter chartWriter) {
+        this.chartWriter = chartWriter;
+    }
+
+    /**
+     * Sets the sizes, in years, of the rolling averages drawn on each chart.
+     */
+    void setRollingWindows(int... rollingWindows) {
+        this.rollingWindows = rollingWindows.clone();
+    }
+
+    private void writeTrends() {
+        try {
+            TrendReport.write(data, START_YEAR, END_YEAR, Paths.get(TRENDS_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Makes one chart per combination of the {@link Province}, {@link ReadingOf}, {@link Season} and
+     * {@link StationsOption} values, 2,250 at present, skipping those whose fingerprint is unchanged.
+     */
     private void createAllGraphs() {
-        int startYear = 1900, endYear = 2022;
+        int startYear = START_YEAR, endYear = END_YEAR;
+        ChartManifest manifest;
+        try {
+            manifest = ChartManifest.load(Paths.get(CHART_MANIFEST));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        ChartWriter writer = chartWriter;
+        String settings = writer.settings() + " " + VALUE_PAINT + "/" + VALUE_WIDTH + " "
+                + Arrays.toString(ROLLING_PAINTS) + "/" + ROLLING_WIDTH + " " + TREND_PAINT + "/" + TREND_WIDTH + "\n";
+        ChartPipeline pipeline = new ChartPipeline();
         for (Province province : Province.values()) {
-            (new Thread(() -> {
-                for (ReadingOf readingOf : ReadingOf.values()) {
-                    for (Season season : Season.values()) {
-                        for (StationsOption stationsOption : StationsOption.values()) {
-                            String title = stationsOption.name() + " " + readingOf.name() + " in " + province.toString().toUpperCase(Locale.ROOT) + " during " + (season == Season.ALL ? "ALL_SEASONS" : season.name());
+            for (ReadingOf readingOf : ReadingOf.values()) {
+                for (Season season : Season.values()) {
+                    for (StationsOption stationsOption : StationsOption.values()) {
+                        String title = stationsOption.name() + " " + readingOf.name() + " in " + province.toString().toUpperCase(Locale.ROOT) + " during " + (season == Season.ALL ? "ALL_SEASONS" : season.name());
+                        File file = new File(("./output/" + province + "/" + season + "/" + stationsOption.name() + "_" + readingOf.name() + "." + writer.extension()).toLowerCase(Locale.ROOT));
+                        Data.Query query = new Data.Query.Builder().readingOf(readingOf).stationsOption(stationsOption).province(province).season(season).build();
+                        pipeline.submit(title, () -> {
+                            XYDataset dataset = createDataset(startYear, endYear, query);
+                            String fingerprint = ChartManifest.fingerprint(dataset, settings + title);
+                            if (manifest.isUpToDate(file, fingerprint)) {
+                                return null;
+                            }
                             System.out.println("Making graph: " + title);
-                            File file = new File(("./output/" + province + "/" + season + "/" + stationsOption.name() + "_" + readingOf.name() + ".png").toLowerCase(Locale.ROOT));
-                            Data.Query query = new Data.Query.Builder().readingOf(readingOf).stationsOption(stationsOption).province(province).season(season).build();
-                            createGraph(file, title, startYear, endYear, query);
-                        }
+                            return new Chart(dataset, fingerprint);
+                        }, chart -> {
+                            writer.write(file, title, chart.dataset());
+                            manifest.record(file, chart.fingerprint());
+                        });
                     }
                 }
-            })).start();
+            }
         }
-    }
 
-    private void createGraph(File file, String title, int startYear, int endYear, Data.Query query){
         try {
-            FileUtils.openOutputStream(file);
+            pipeline.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            manifest.save();
         } catch (IOException e) {
             e.printStackTrace();
         }
+    }
+
+    private record Chart(XYDataset dataset, String fingerprint) {
+    }
 
+    /**
+     * Builds the JFreeChart of a dataset: the value, rolling average and trend series as plain lines.
+     */
+    static JFreeChart createChart(String title, XYDataset dataset) {
         JFreeChart timeSeriesChart = ChartFactory.createTimeSeriesChart(
                 title,
                 "Year",
                 "Value",
-                createDataset(startYear, endYear, query),
+                dataset,
                 true, true, true
         );
 
         XYLineAndShapeRenderer r = new XYLineAndShapeRenderer();
-        r.setSeriesPaint(0, Color.BLUE);
-        r.setSeriesPaint(1, Color.GREEN);
-        r.setSeriesPaint(2, Color.RED);
-        r.setSeriesStroke(0, new BasicStroke(2.0f));
-        r.setSeriesStroke(1, new BasicStroke(3.0f));
-        r.setSeriesStroke(2, new BasicStroke(1.0f));
+        for (int i = 0; i < dataset.getSeriesCount(); i++) {
+            r.setSeriesPaint(i, seriesPaint(i, dataset.getSeriesCount()));
+            r.setSeriesStroke(i, new BasicStroke(seriesWidth(i, dataset.getSeriesCount())));
+        }
         r.setBaseShapesVisible(false);
         timeSeriesChart.getXYPlot().setRenderer(r);
+        return timeSeriesChart;
+    }
 
-        try {
-            ChartUtilities.saveChartAsPNG(file, timeSeriesChart, 2000, 1000);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Colour of a dataset's series: the value series comes first, the trend last and the rolling averages in
+     * between.
+     */
+    static Color seriesPaint(int series, int seriesCount) {
+        if (series == 0) {
+            return VALUE_PAINT;
+        }
+        return series == seriesCount - 1 ? TREND_PAINT : ROLLING_PAINTS[(series - 1) % ROLLING_PAINTS.length];
+    }
+
+    static float seriesWidth(int series, int seriesCount) {
+        if (series == 0) {
+            return VALUE_WIDTH;
         }
+        return series == seriesCount - 1 ? TREND_WIDTH : ROLLING_WIDTH;
     }
 
-    private XYDataset createDataset(int startYear, int endYear, Data.Query query) {
+    XYDataset createDataset(int startYear, int endYear, Data.Query query) {
         TimeSeriesCollection dataset = new TimeSeriesCollection();
         TimeSeries mainValueSeries = new TimeSeries("Value");
-        TimeSeries rollingAverageSeries = new TimeSeries(ROLLING_NUMBER + "-Year Rolling Avg");
+        RollingStatistics rolling = new RollingStatistics(rollingWindows);
+        TimeSeries[] rollingAverageSeries = new TimeSeries[rolling.getWindowCount()];
+        for (int k = 0; k < rollingAverageSeries.length; k++) {
+            rollingAverageSeries[k] = new TimeSeries(rolling.getWindow(k) + "-Year Rolling Avg");
+        }
         TimeSeries linearTrendSeries = new TimeSeries("Linear Trend");
 
-        WeightedObservedPoints allPoints = new WeightedObservedPoints();
-        RollingAverage rollingAverage = new RollingAverage();
+        float[] values = data.queryRange(query, startYear, endYear);
         for (int i = startYear; i <= endYear; i++) {
             Year year = new Year(i);
 
-            query.setYear(i);
-            float mainValue = data.query(query);
+            float mainValue = values[i - startYear];
 
             if (mainValue != Float.MIN_VALUE) {
-                allPoints.add(i, mainValue);
-                rollingAverage.update(mainValue);
+                rolling.update(mainValue);
                 mainValueSeries.add(new TimeSeriesDataItem(year, mainValue));
-                if (rollingAverage.getValue() != Float.MIN_VALUE) {
-                    rollingAverageSeries.add(new TimeSeriesDataItem(year, rollingAverage.getValue()));
+                for (int k = 0; k < rollingAverageSeries.length; k++) {
+                    if (rolling.isFull(k)) {
+                        rollingAverageSeries[k].add(new TimeSeriesDataItem(year, rolling.getMean(k)));
+                    }
                 }
             }
         }
-        PolynomialCurveFitter fitter = PolynomialCurveFitter.create(1);
-        ArrayList<WeightedObservedPoint> list = new ArrayList<>(allPoints.toList());
-
-        if (list.size() > 0) {
-            double[] coef = fitter.fit(list);
-            double b = coef[0],
-                    slope = coef[1];
-            for (WeightedObservedPoint p : list) {
-                linearTrendSeries.add(new TimeSeriesDataItem(new Year((int) p.getX()), p.getX() * slope + b));
+        Trend trend = Trend.of(values, startYear);
+        for (int i = startYear; i <= endYear; i++) {
+            if (values[i - startYear] != Float.MIN_VALUE) {
+                linearTrendSeries.add(new TimeSeriesDataItem(new Year(i), trend.valueAt(i)));
             }
         }
 
         dataset.addSeries(mainValueSeries);
-        dataset.addSeries(rollingAverageSeries);
+        for (TimeSeries series : rollingAverageSeries) {
+            dataset.addSeries(series);
+        }
         dataset.addSeries(linearTrendSeries);
 
         return dataset;
     }
-
-    public static class RollingAverage {
-        final ArrayList<Float> numbers;
-
-        RollingAverage() {
-            numbers = new ArrayList<>();
-        }
-
-        void update(float newValue) {
-            numbers.add(newValue);
-            if (ROLLING_NUMBER < numbers.size()) {
-                numbers.remove(0);
-            }
-        }
-
-        float getValue() {
-            if (numbers.size() < ROLLING_NUMBER) {
-                return Float.MIN_VALUE;
-            }
-            float total = 0;
-            for (float f : numbers) {
-                total += f;
-            }
-            return total / ROLLING_NUMBER;
-        }
-    }
 }
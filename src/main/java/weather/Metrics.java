@@ -0,0 +1,336 @@
+package weather;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide counters, histograms and gauges, dumped as JSON and in the Prometheus text format.
+ * <p>
+ * A metric is identified by its name and label values and created on first use; callers on hot paths keep the
+ * returned object instead of looking it up every time. Updates are lock-free adders, so recording costs a few
+ * nanoseconds and never contends. Histograms use fixed buckets, cumulative like Prometheus expects.
+ */
+final class Metrics {
+    /**
+     * Bucket upper bounds, in seconds, for anything from a cube lookup to a slow download.
+     */
+    static final double[] SECONDS = {0.00001, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60};
+    /**
+     * Bucket upper bounds for counts of rows or bytes.
+     */
+    static final double[] SIZES = {10, 100, 1000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
+    private static final ConcurrentHashMap<String, Metric> METRICS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> HELP = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, labels, () -> new Counter(name, labels));
+    }
+
+    static Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) register(name, help, labels, () -> new Histogram(name, labels, buckets));
+    }
+
+    /**
+     * Registers a gauge read when the metrics are dumped, replacing any earlier gauge with the same name and labels.
+     */
+    static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        METRICS.put(key(name, help, labels), new Gauge(name, labels, value));
+    }
+
+    private interface Factory {
+        Metric create();
+    }
+
+    private static Metric register(String name, String help, String[] labels, Factory factory) {
+        String key = key(name, help, labels);
+        Metric metric = METRICS.get(key);
+        return metric != null ? metric : METRICS.compute(key, (k, old) -> old != null ? old : factory.create());
+    }
+
+    private static String key(String name, String help, String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs: " + name);
+        }
+        HELP.putIfAbsent(name, help);
+        return name + labelText(labels);
+    }
+
+    private static String labelText(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns the seconds elapsed since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    static double since(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * Returns the metrics grouped by name, as the Prometheus format requires, and then ordered by labels.
+     */
+    private static List<Metric> sorted() {
+        List<Metric> metrics = new ArrayList<>(METRICS.values());
+        metrics.sort(Comparator.comparing((Metric m) -> m.name).thenComparing(m -> labelText(m.labels)));
+        return metrics;
+    }
+
+    static String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        String family = null;
+        for (Metric m : sorted()) {
+            if (!m.name.equals(family)) {
+                family = m.name;
+                sb.append("# HELP ").append(m.name).append(' ').append(HELP.get(m.name)).append('\n');
+                sb.append("# TYPE ").append(m.name).append(' ').append(m.type()).append('\n');
+            }
+            m.appendPrometheus(sb);
+        }
+        return sb.toString();
+    }
+
+    static String toJson() {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginArray();
+            for (Metric m : sorted()) {
+                json.beginObject();
+                json.name("name").value(m.name);
+                json.name("type").value(m.type());
+                json.name("labels").beginObject();
+                for (int i = 0; i < m.labels.length; i += 2) {
+                    json.name(m.labels[i]).value(m.labels[i + 1]);
+                }
+                json.endObject();
+                m.appendJson(json);
+                json.endObject();
+            }
+            json.endArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes metrics.json and metrics.prom into {@code directory}, each replaced atomically.
+     */
+    static void dump(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        write(directory.resolve("metrics.json"), toJson());
+        write(directory.resolve("metrics.prom"), toPrometheus());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Dumps the metrics into {@code directory} every {@code seconds} until the process exits.
+     */
+    static void dumpPeriodically(Path directory, long seconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                dump(directory);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    private static String number(double value) {
+        if (value == Double.POSITIVE_INFINITY) {
+            return "+Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    abstract static class Metric {
+        final String name;
+        final String[] labels;
+
+        private Metric(String name, String[] labels) {
+            this.name = name;
+            this.labels = labels.clone();
+        }
+
+        abstract String type();
+
+        abstract void appendPrometheus(StringBuilder sb);
+
+        abstract void appendJson(JsonWriter json) throws IOException;
+    }
+
+    static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String[] labels) {
+            super(name, labels);
+        }
+
+        void inc() {
+            value.increment();
+        }
+
+        void add(long amount) {
+            value.add(amount);
+        }
+
+        long get() {
+            return value.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void appendPrometheus(StringBuilder sb) {
+            sb.append(name).append(labelText(labels)).append(' ').append(value.sum()).append('\n');
+        }
+
+        @Override
+        void appendJson(JsonWriter json) throws IOException {
+            json.name("value").value(value.sum());
+        }
+    }
+
+    static final class Histogram extends Metric {
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(String name, String[] labels, double[] bounds) {
+            super(name, labels);
+            this.bounds = bounds;
+            buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * Records the seconds elapsed since {@code startNanos}.
+         */
+        void observeSince(long startNanos) {
+            observe(since(startNanos));
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double getSum() {
+            return sum.sum();
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void appendPrometheus(StringBuilder sb) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String[] withLe = new String[labels.length + 2];
+                System.arraycopy(labels, 0, withLe, 0, labels.length);
+                withLe[labels.length] = "le";
+                withLe[labels.length + 1] = number(i < bounds.length ? bounds[i] : Double.POSITIVE_INFINITY);
+                sb.append(name).append("_bucket").append(labelText(withLe)).append(' ').append(cumulative).append('\n');
+            }
+            sb.append(name).append("_sum").append(labelText(labels)).append(' ').append(number(sum.sum())).append('\n');
+            sb.append(name).append("_count").append(labelText(labels)).append(' ').append(count.sum()).append('\n');
+        }
+
+        @Override
+        void appendJson(JsonWriter json) throws IOException {
+            json.name("count").value(count.sum());
+            json.name("sum").value(sum.sum());
+            json.name("buckets").beginObject();
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                json.name(number(i < bounds.length ? bounds[i] : Double.POSITIVE_INFINITY)).value(cumulative);
+            }
+            json.endObject();
+        }
+    }
+
+    static final class Gauge extends Metric {
+        private final DoubleSupplier value;
+
+        private Gauge(String name, String[] labels, DoubleSupplier value) {
+            super(name, labels);
+            this.value = value;
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void appendPrometheus(StringBuilder sb) {
+            sb.append(name).append(labelText(labels)).append(' ').append(number(value.getAsDouble())).append('\n');
+        }
+
+        @Override
+        void appendJson(JsonWriter json) throws IOException {
+            json.name("value").value(value.getAsDouble());
+        }
+    }
+}
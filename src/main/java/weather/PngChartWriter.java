@@ -0,0 +1,82 @@
+package weather;
+
+import org.apache.commons.io.FileUtils;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.xy.XYDataset;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Rasterizes charts with JFreeChart and encodes them as PNG.
+ * <p>
+ * Each render thread draws into its own image, which is reused for every chart instead of allocating a new
+ * 8 MB buffer per chart. Like {@code JFreeChart.createBufferedImage}, the image has an alpha channel, so the files
+ * are RGBA PNGs. It is encoded by the JDK's PNG writer with an explicit deflate level, which the JFreeChart encoders
+ * ignore: lower levels write bigger files faster, 9 is the smallest and 4 writes the same bytes as
+ * {@code ChartUtilities.saveChartAsPNG}.
+ */
+class PngChartWriter implements ChartWriter {
+    private final int width, height, compression;
+    private final ThreadLocal<BufferedImage> images;
+
+    PngChartWriter(int width, int height, int compression) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+        if (compression < 0 || compression > 9) {
+            throw new IllegalArgumentException("Compression must be between 0 and 9: " + compression);
+        }
+        this.width = width;
+        this.height = height;
+        this.compression = compression;
+        images = ThreadLocal.withInitial(() -> new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    @Override
+    public String extension() {
+        return "png";
+    }
+
+    @Override
+    public String settings() {
+        return "png " + width + "x" + height + " compression " + compression;
+    }
+
+    @Override
+    public void write(File file, String title, XYDataset dataset) throws IOException {
+        JFreeChart chart = Graph.createChart(title, dataset);
+        BufferedImage image = images.get();
+        Graphics2D g2 = image.createGraphics();
+        try {
+            // Clear the previous chart to transparent, as a fresh image from JFreeChart starts.
+            g2.setComposite(AlphaComposite.Clear);
+            g2.fillRect(0, 0, width, height);
+            g2.setComposite(AlphaComposite.SrcOver);
+            chart.draw(g2, new Rectangle2D.Double(0, 0, width, height), null, null);
+        } finally {
+            g2.dispose();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (OutputStream out = new BufferedOutputStream(FileUtils.openOutputStream(file));
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality((9 - compression) / 9f);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package weather;
+
+/**
+ * Counts of readings in log-linear buckets, from which any quantile can be read back within 0.8% of its value.
+ * <p>
+ * A value's bucket is the top 14 bits of its magnitude as a float: its exponent and the first 6 bits of its
+ * mantissa, so every power of two is split into 64 buckets each 1/64 of the power wide. A quantile is reported as
+ * the middle of its bucket, clamped to the exact min and max, which is within 1/128 of the true value of the same
+ * rank. Magnitudes below 2<sup>-16</sup> count as zero.
+ * <p>
+ * Memory depends only on the spread of the values, not their number: the readings of a year span a few hundred
+ * buckets, and no sketch ever needs more than 2 &times; 2<sup>14</sup> counts. Merging adds counts, so a sketch
+ * built from parts merged in any order is identical to one built from all the values at once.
+ */
+class QuantileSketch {
+    private static final int SHIFT = 17, BUCKETS = 1 << 31 - SHIFT;
+    private static final int SMALLEST = Float.floatToRawIntBits(0x1p-16f) >>> SHIFT;
+
+    // Magnitudes of positive values, then of negative ones, picked by the sign bit rather than a branch.
+    private final Buckets[] signs = {new Buckets(), new Buckets()};
+    private long zeros;
+    private float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+
+    void add(float value) {
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        int bits = Float.floatToRawIntBits(value), bucket = (bits & Integer.MAX_VALUE) >>> SHIFT;
+        if (bucket >= SMALLEST) {
+            signs[bits >>> 31].add(bucket, 1);
+        } else {
+            zeros++;
+        }
+    }
+
+    /**
+     * Adds every value counted by {@code other} into this sketch.
+     */
+    QuantileSketch merge(QuantileSketch other) {
+        signs[0].merge(other.signs[0]);
+        signs[1].merge(other.signs[1]);
+        zeros += other.zeros;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    long count() {
+        return signs[0].total + signs[1].total + zeros;
+    }
+
+    /**
+     * Returns the value of rank {@code floor(q * (count - 1))} in ascending order, so the median of an even count
+     * is the lower of the middle two, or {@link ReadingStore#MISSING} if the sketch is empty.
+     */
+    float quantile(double q) {
+        long count = count();
+        if (count == 0) {
+            return ReadingStore.MISSING;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        Buckets positive = signs[0], negative = signs[1];
+        float value;
+        if (rank < negative.total) {
+            value = -middle(negative.find(negative.total - 1 - rank));
+        } else if (rank < negative.total + zeros) {
+            value = 0;
+        } else {
+            value = middle(positive.find(rank - negative.total - zeros));
+        }
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static float middle(int bucket) {
+        float lower = Float.intBitsToFloat(bucket << SHIFT), upper = Float.intBitsToFloat((bucket + 1) << SHIFT);
+        return lower + (upper - lower) / 2;
+    }
+
+    /**
+     * Counts for a window of buckets that grows to cover whichever are used.
+     */
+    private static class Buckets {
+        private int[] counts = new int[0];
+        private int offset;
+        private long total;
+
+        void add(int bucket, int n) {
+            if (bucket < offset || bucket >= offset + counts.length) {
+                cover(bucket, bucket + 1);
+            }
+            counts[bucket - offset] += n;
+            total += n;
+        }
+
+        void merge(Buckets other) {
+            if (other.total == 0) {
+                return;
+            }
+            cover(other.offset, other.offset + other.counts.length);
+            for (int i = 0, j = other.offset - offset; i < other.counts.length; i++, j++) {
+                counts[j] += other.counts[i];
+            }
+            total += other.total;
+        }
+
+        /**
+         * Widens the window to include buckets {@code [low, high)}.
+         */
+        private void cover(int low, int high) {
+            if (counts.length == 0) {
+                counts = new int[Math.max(16, high - low)];
+                offset = Math.max(0, Math.min(low - (counts.length - (high - low)) / 2, BUCKETS - counts.length));
+                return;
+            }
+            if (low >= offset && high <= offset + counts.length) {
+                return;
+            }
+            // Grow by half again on the side that ran out, so values spreading outwards copy O(log n) times.
+            int extra = counts.length / 2;
+            int newLow = low < offset ? Math.max(0, Math.min(low, offset - extra)) : offset;
+            int newHigh = high > offset + counts.length ? Math.min(BUCKETS, Math.max(high, offset + counts.length
+                    + extra)) : offset + counts.length;
+            int[] grown = new int[newHigh - newLow];
+            System.arraycopy(counts, 0, grown, offset - newLow, counts.length);
+            counts = grown;
+            offset = newLow;
+        }
+
+        /**
+         * Returns the bucket holding the value of {@code rank}, counted from the smallest.
+         */
+        int find(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return offset + i;
+                }
+            }
+            throw new IllegalStateException("Rank " + rank + " of " + total);
+        }
+    }
+}
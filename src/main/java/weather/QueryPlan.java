@@ -0,0 +1,239 @@
+package weather;
+
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+import weather.enums.StationsOption;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A {@link Data.Query} compiled into the column it reads, a month bitmask that fuses the month and season
+ * filters, and the aggregation to apply. Plans do not depend on the year, so one plan is shared by every
+ * query of the same shape.
+ */
+class QueryPlan {
+    private static final int ALL_MONTHS = ~0;
+    private static final int CHUNK_STATIONS = 64, PERCENTILE_CHUNK_STATIONS = 512;
+    private static final ConcurrentHashMap<Long, QueryPlan> plans = new ConcurrentHashMap<>();
+
+    private final ReadingOf readingOf;
+    private final int monthMask;
+    private final StationsOption stationsOption;
+
+    private QueryPlan(ReadingOf readingOf, int monthMask, StationsOption stationsOption) {
+        this.readingOf = readingOf;
+        this.monthMask = monthMask;
+        this.stationsOption = stationsOption;
+    }
+
+    static QueryPlan compile(Data.Query query) {
+        int monthMask = monthMask(query.month, query.season);
+        long key = (long) monthMask << 32 | query.readingOf.ordinal() << 16 | query.stationsOption.ordinal();
+        return plans.computeIfAbsent(key, k -> new QueryPlan(query.readingOf, monthMask, query.stationsOption));
+    }
+
+    /**
+     * Returns a mask with bit {@code m} set for every month {@code m} the filters accept.
+     */
+    static int monthMask(int month, Season season) {
+        int mask = month == 0 ? ALL_MONTHS : (month > 0 && month < 32 ? 1 << month : 0);
+        if (season != null && season != Season.ALL) {
+            int seasonMask = 0;
+            for (int m = 1; m <= 12; m++) {
+                if (ReadingStore.seasonOf(m) == season) {
+                    seasonMask |= 1 << m;
+                }
+            }
+            mask &= seasonMask;
+        }
+        return mask;
+    }
+
+    boolean acceptsMonth(int month) {
+        return (monthMask >>> month & 1) != 0;
+    }
+
+    ReadingOf getReadingOf() {
+        return readingOf;
+    }
+
+    /**
+     * Aggregates every reading of the given stations that matches the plan and the year, where a year of 0
+     * matches all years, into the only slot of the result. In {@code parallel}, the stations are split across
+     * the common fork/join pool; the answer is the same.
+     */
+    Aggregate execute(List<Station> stations, int year, boolean parallel) {
+        return aggregate(stations, year, year, false, parallel);
+    }
+
+    /**
+     * Aggregates the matching readings of the given stations into one slot per year from {@code startYear} to
+     * {@code endYear} inclusive, in a single pass. Each slot equals what {@link #execute} returns for that year.
+     */
+    Aggregate executeRange(List<Station> stations, int startYear, int endYear, boolean parallel) {
+        return aggregate(stations, startYear, endYear, true, parallel);
+    }
+
+    private Aggregate aggregate(List<Station> stations, int startYear, int endYear, boolean range,
+                                boolean parallel) {
+        Chunk chunk = new Chunk(stations, 0, stations.size(), startYear, endYear, range, parallel);
+        return parallel ? ForkJoinPool.commonPool().invoke(chunk) : chunk.compute();
+    }
+
+    /**
+     * The readings of stations {@code [from, to)}, halved until at most {@link #CHUNK_STATIONS} are left. The
+     * halves depend only on the number of stations, so the partial sums are always added up in the same order
+     * whether the halves run on one thread or on the pool.
+     * <p>
+     * Sketches merge exactly in any grouping, so percentiles are not split at all on one thread, and into larger
+     * chunks on the pool, as a partial sketch costs far more to build and merge than a partial sum.
+     * <p>
+     * Tasks are serializable only because {@link RecursiveTask} is; they are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private class Chunk extends RecursiveTask<Aggregate> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Station> stations;
+        private final int from, to, startYear, endYear;
+        private final boolean range, parallel;
+
+        Chunk(List<Station> stations, int from, int to, int startYear, int endYear, boolean range,
+              boolean parallel) {
+            this.stations = stations;
+            this.from = from;
+            this.to = to;
+            this.startYear = startYear;
+            this.endYear = endYear;
+            this.range = range;
+            this.parallel = parallel;
+        }
+
+        private int leafStations() {
+            if (!stationsOption.isPercentile()) {
+                return CHUNK_STATIONS;
+            }
+            return parallel ? PERCENTILE_CHUNK_STATIONS : Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (to - from <= leafStations()) {
+                boolean percentile = stationsOption.isPercentile();
+                Aggregate aggregate = new Aggregate(range ? endYear - startYear + 1 : 1, percentile);
+                for (int s = from; s < to; s++) {
+                    ReadingStore readings = stations.get(s).getReadings();
+                    if (percentile) {
+                        sketch(readings, startYear, range, aggregate);
+                    } else if (range) {
+                        addYears(readings, startYear, aggregate);
+                    } else {
+                        addYear(readings, startYear, aggregate);
+                    }
+                }
+                return aggregate;
+            }
+
+            int middle = (from + to) >>> 1;
+            Chunk left = new Chunk(stations, from, middle, startYear, endYear, range, parallel);
+            Chunk right = new Chunk(stations, middle, to, startYear, endYear, range, parallel);
+            if (!parallel) {
+                return left.compute().merge(right.compute());
+            }
+            left.fork();
+            Aggregate rightAggregate = right.compute();
+            return left.join().merge(rightAggregate);
+        }
+    }
+
+    /**
+     * Adds the readings that match the plan and the year, or every year if it is 0, into the only slot. A single
+     * year of readings in time order is read as a slice.
+     */
+    private void addYear(ReadingStore readings, int year, Aggregate aggregate) {
+        int from = 0, to = readings.size();
+        if (year != 0 && readings.isTimeOrdered()) {
+            from = readings.yearStart(year);
+            to = readings.yearStart(year + 1);
+            year = 0;
+        }
+        aggregate.scanned += to - from;
+        AggregationKernel.INSTANCE.add(readings.getColumn(readingOf), readings.getMissing(readingOf),
+                readings.getYears(), readings.getMonths(), from, to, year, monthMask, aggregate, 0);
+    }
+
+    /**
+     * Adds the readings that match the plan into the slot of their year, counted from {@code startYear}. Readings
+     * in time order are read one year's slice at a time, skipping the years outside the range.
+     */
+    private void addYears(ReadingStore readings, int startYear, Aggregate aggregate) {
+        short[] yearColumn = readings.getYears();
+        byte[] months = readings.getMonths();
+        float[] values = readings.getColumn(readingOf);
+        long[] missing = readings.getMissing(readingOf);
+        int years = aggregate.total.length, size = readings.size();
+        if (readings.isTimeOrdered()) {
+            int start = readings.yearStart(startYear), end = readings.yearStart(startYear + years);
+            aggregate.scanned += end - start;
+            for (int i = start; i < end; ) {
+                int year = yearColumn[i], next = readings.yearStart(year + 1);
+                AggregationKernel.INSTANCE.add(values, missing, yearColumn, months, i, next, 0, monthMask, aggregate,
+                        year - startYear);
+                i = next;
+            }
+            return;
+        }
+
+        aggregate.scanned += size;
+        double[] total = aggregate.total;
+        int[] count = aggregate.count;
+        float[] max = aggregate.max, min = aggregate.min;
+        for (int i = 0; i < size; i++) {
+            int y = yearColumn[i] - startYear;
+            if (y >= 0 && y < years
+                    && (monthMask >>> months[i] & 1) != 0
+                    && (missing[i >>> 6] & (1L << i)) == 0) {
+                float value = values[i];
+                count[y]++;
+                total[y] += value;
+
+                if (value > max[y]) {
+                    max[y] = value;
+                }
+
+                if (value < min[y]) {
+                    min[y] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the readings that match the plan into the sketch of their year, counted from {@code startYear}, or
+     * for a single year, or every year if it is 0, into the only sketch. Readings in time order are only read
+     * within the years asked for.
+     */
+    private void sketch(ReadingStore readings, int startYear, boolean range, Aggregate aggregate) {
+        short[] yearColumn = readings.getYears();
+        byte[] months = readings.getMonths();
+        float[] values = readings.getColumn(readingOf);
+        long[] missing = readings.getMissing(readingOf);
+        int years = range ? aggregate.total.length : 1, from = 0, to = readings.size();
+        if ((range || startYear != 0) && readings.isTimeOrdered()) {
+            from = readings.yearStart(startYear);
+            to = readings.yearStart(startYear + years);
+        }
+        aggregate.scanned += to - from;
+        for (int i = from; i < to; i++) {
+            int y = range ? yearColumn[i] - startYear : (startYear == 0 || yearColumn[i] == startYear ? 0 : -1);
+            if (y >= 0 && y < years
+                    && (monthMask >>> months[i] & 1) != 0
+                    && (missing[i >>> 6] & (1L << i)) == 0) {
+                aggregate.sketch(y).add(values[i]);
+            }
+        }
+    }
+}
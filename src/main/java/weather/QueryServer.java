@@ -0,0 +1,368 @@
+package weather;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+import weather.enums.StationsOption;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers queries over the loaded dataset as JSON, for dashboards and ad-hoc questions without rendering charts.
+ * <p>
+ * {@code GET /query} returns one value and {@code GET /range} one value per year from {@code from} to {@code to}.
+ * Both take the {@link Data.Query.Builder} settings as parameters: {@code reading} and {@code option} (required),
+ * {@code province}, {@code season}, {@code year}, {@code month}, and {@code radius} with {@code lat} and
+ * {@code lon}. Enum names are case-insensitive and years without data are {@code null}. {@code GET /metrics}
+ * returns {@link Metrics} in the Prometheus text format.
+ * <p>
+ * The dataset does not change while serving, so responses are cached, least recently used first out, under the
+ * normalized query: parameter order, letter case and settings that do not affect the answer all map to one entry.
+ * <p>
+ * There is no authentication, so the server listens on the loopback address unless another is set.
+ */
+public class QueryServer {
+    private static final int MAX_YEARS = 1000;
+    private static final String JSON = "application/json; charset=UTF-8";
+
+    private final Data data;
+    private final Map<String, byte[]> cache;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Metrics.Counter hits, misses;
+
+    private QueryServer(Data data, Builder builder) throws IOException {
+        this.data = data;
+        int cacheSize = builder.cacheSize;
+        cache = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        hits = Metrics.counter("weather_server_cache_total", "Query cache lookups", "result", "hit");
+        misses = Metrics.counter("weather_server_cache_total", "Query cache lookups", "result", "miss");
+        Metrics.gauge("weather_server_cache_entries", "Responses in the query cache", this::cacheEntries);
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(builder.address, builder.port), 0);
+        server.createContext("/query", exchange -> handle(exchange, "query"));
+        server.createContext("/range", exchange -> handle(exchange, "range"));
+        server.createContext("/metrics", exchange -> handle(exchange, "metrics"));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private synchronized int cacheEntries() {
+        return cache.size();
+    }
+
+    private void handle(HttpExchange exchange, String endpoint) {
+        long start = System.nanoTime();
+        int status = 500;
+        try (exchange) {
+            byte[] body;
+            String contentType = JSON;
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    status = 405;
+                    body = error("Only GET is supported");
+                } else if (!exchange.getRequestURI().getPath().equals("/" + endpoint)) {
+                    status = 404;
+                    body = error("Not found");
+                } else if (endpoint.equals("metrics")) {
+                    status = 200;
+                    body = Metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+                    contentType = "text/plain; version=0.0.4; charset=UTF-8";
+                } else {
+                    try {
+                        body = answer(endpoint, parameters(exchange.getRequestURI()));
+                        status = 200;
+                    } catch (IllegalArgumentException e) {
+                        status = 400;
+                        body = error(e.getMessage());
+                    }
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                status = 500;
+                body = error("Internal error");
+                contentType = JSON;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client went away before the response was written.
+        } catch (RuntimeException e) {
+            // The headers are already sent, so all that is left is to drop the connection.
+            e.printStackTrace();
+        } finally {
+            Metrics.histogram("weather_server_request_seconds", "Query server response time", Metrics.SECONDS,
+                    "endpoint", endpoint).observeSince(start);
+            Metrics.counter("weather_server_responses_total", "Query server responses by status",
+                    "endpoint", endpoint, "status", Integer.toString(status)).inc();
+        }
+    }
+
+    /**
+     * Returns the cached response to a query, computing it on a miss. Two requests for the same missing query may
+     * both compute it; the answers are identical, so the second simply replaces the first.
+     */
+    private byte[] answer(String endpoint, Map<String, String> parameters) {
+        Data.Query query = parseQuery(parameters, endpoint.equals("query"));
+        int from = 0, to = 0;
+        if (endpoint.equals("range")) {
+            from = integer(parameters, "from", Data.START_YEAR);
+            to = integer(parameters, "to", Year.now().getValue());
+            if (from > to || to - from >= MAX_YEARS) {
+                throw new IllegalArgumentException("Invalid range " + from + "-" + to);
+            }
+        }
+
+        String key = endpoint + '|' + key(query) + '|' + from + '|' + to;
+        byte[] body;
+        synchronized (this) {
+            body = cache.get(key);
+        }
+        if (body != null) {
+            hits.inc();
+            return body;
+        }
+        misses.inc();
+
+        body = endpoint.equals("query") ? json(query, data.query(query), 0, null)
+                : json(query, 0, from, data.queryRange(query, from, to));
+        synchronized (this) {
+            cache.put(key, body);
+        }
+        return body;
+    }
+
+    private static Data.Query parseQuery(Map<String, String> parameters, boolean single) {
+        Data.Query.Builder builder = new Data.Query.Builder()
+                .readingOf(enumeration(parameters, "reading", ReadingOf.class, null))
+                .stationsOption(enumeration(parameters, "option", StationsOption.class, null))
+                .province(enumeration(parameters, "province", Province.class, Province.CANADA))
+                .season(enumeration(parameters, "season", Season.class, Season.ALL))
+                .month(integer(parameters, "month", 0));
+        if (single) {
+            builder.year(integer(parameters, "year", 0));
+        }
+        float radius = decimal(parameters, "radius", 0);
+        if (radius < 0) {
+            throw new IllegalArgumentException("Invalid radius " + radius);
+        }
+        if (radius > 0) {
+            builder.withinRangeKM(radius, decimal(parameters, "lat", Float.NaN),
+                    decimal(parameters, "lon", Float.NaN));
+        }
+        Data.Query query = builder.build();
+        if (query.month < 0 || query.month > 12) {
+            throw new IllegalArgumentException("Invalid month " + query.month);
+        }
+        if (Float.isNaN(query.latitude) || Float.isNaN(query.longitude)) {
+            throw new IllegalArgumentException("A radius needs lat and lon");
+        }
+        if (query.latitude < -90 || query.latitude > 90) {
+            throw new IllegalArgumentException("Invalid lat " + query.latitude);
+        }
+        if (query.longitude < -180 || query.longitude > 180) {
+            throw new IllegalArgumentException("Invalid lon " + query.longitude);
+        }
+        return query;
+    }
+
+    /**
+     * Returns a key that is the same for every spelling of a query.
+     */
+    private static String key(Data.Query query) {
+        return query.readingOf.name() + '|' + query.stationsOption.name() + '|' + query.province.name() + '|'
+                + query.season.name() + '|' + query.year + '|' + query.month + '|' + query.withinRangeKM + '|'
+                + query.latitude + '|' + query.longitude;
+    }
+
+    private static <E extends Enum<E>> E enumeration(Map<String, String> parameters, String name, Class<E> type,
+                                                     E fallback) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            if (fallback == null) {
+                throw new IllegalArgumentException("Missing " + name);
+            }
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    private static int integer(Map<String, String> parameters, String name, int fallback) {
+        String value = parameters.get(name);
+        try {
+            return value == null || value.isEmpty() ? fallback : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    private static float decimal(Map<String, String> parameters, String name, float fallback) {
+        String value = parameters.get(name);
+        try {
+            float f = value == null || value.isEmpty() ? fallback : Float.parseFloat(value);
+            if (Float.isInfinite(f)) {
+                throw new NumberFormatException();
+            }
+            return f;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    private static Map<String, String> parameters(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    String name = URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8);
+                    parameters.put(name.toLowerCase(Locale.ROOT),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Writes the normalized query followed by either its {@code value}, or its {@code values} from year
+     * {@code from} on.
+     */
+    private static byte[] json(Data.Query query, float value, int from, float[] values) {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject();
+            json.name("reading").value(query.readingOf.name());
+            json.name("option").value(query.stationsOption.name());
+            json.name("province").value(query.province.name());
+            json.name("season").value(query.season.name());
+            if (values == null && query.year != 0) {
+                json.name("year").value(query.year);
+            }
+            if (query.month != 0) {
+                json.name("month").value(query.month);
+            }
+            if (query.withinRangeKM != 0) {
+                json.name("radius").value(query.withinRangeKM);
+                json.name("lat").value(query.latitude);
+                json.name("lon").value(query.longitude);
+            }
+            if (values == null) {
+                json.name("value");
+                value(json, value);
+            } else {
+                json.name("from").value(from);
+                json.name("to").value(from + values.length - 1);
+                json.name("values").beginArray();
+                for (float v : values) {
+                    value(json, v);
+                }
+                json.endArray();
+            }
+            json.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void value(JsonWriter json, float value) throws IOException {
+        if (value == ReadingStore.MISSING) {
+            json.nullValue();
+        } else {
+            json.value((Number) value);
+        }
+    }
+
+    private static byte[] error(String message) {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject().name("error").value(message).endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static class Builder {
+        private InetAddress address;
+        private int port, cacheSize;
+
+        public Builder() {
+            address = InetAddress.getLoopbackAddress();
+            port = 8080;
+            cacheSize = 10_000;
+        }
+
+        /**
+         * The address to listen on, such as {@code 0.0.0.0} to answer on every interface.
+         */
+        public QueryServer.Builder address(InetAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        public QueryServer.Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * The most responses kept in the cache.
+         */
+        public QueryServer.Builder cacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Builds a server over {@code data}, which must already be loaded and must not change while serving.
+         */
+        public QueryServer build(Data data) throws IOException {
+            return new QueryServer(data, this);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package weather;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage for the monthly readings of a single station.
+ * <p>
+ * Each field lives in its own primitive array, indexed by {@link ReadingOf#ordinal()}, and missing values are
+ * tracked in a per-field bitmap rather than by storing {@link #MISSING} in the column. The JSON form is the same
+ * array of reading objects that the old {@code Station.Reading} list serialized to, so existing stations.json
+ * files keep loading.
+ * <p>
+ * A store opened from a {@link Snapshot} starts without any columns and copies each one out of the mapped file
+ * the first time it is read, so a query only pages in the columns of the stations it actually visits.
+ * <p>
+ * Readings are appended in any order and put in (year, month) order by {@link #trimToSize()}. A store in that
+ * order gets an index of where each year starts, so queries read the slice of the years they need instead of
+ * testing the year of every reading.
+ */
+@JsonAdapter(ReadingStore.Adapter.class)
+public class ReadingStore {
+    static final float MISSING = Float.MIN_VALUE;
+    private static final ReadingOf[] FIELDS = ReadingOf.values();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int YEARS = 1, MONTHS = 2, ALL_COLUMNS = (1 << FIELDS.length + 2) - 1;
+    private static final int[] UNORDERED = new int[0];
+
+    private int size;
+    private short[] years;
+    private byte[] months;
+    private final float[][] values;
+    private final long[][] missing;
+    private ColumnSource source;
+    private volatile int loaded;
+    // Index of the first reading of each year from firstYear, then size; UNORDERED if not in time order.
+    private volatile int[] yearStarts;
+    private int firstYear;
+
+    public ReadingStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ReadingStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        years = new short[capacity];
+        months = new byte[capacity];
+        values = new float[FIELDS.length][capacity];
+        missing = new long[FIELDS.length][words(capacity)];
+        loaded = ALL_COLUMNS;
+    }
+
+    /**
+     * Creates a store of {@code size} readings whose columns are read from {@code source} on first use.
+     */
+    ReadingStore(ColumnSource source, int size) {
+        this.source = source;
+        this.size = size;
+        values = new float[FIELDS.length][];
+        missing = new long[FIELDS.length][];
+    }
+
+    static int words(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+
+    /**
+     * Appends a reading. Any value equal to {@link #MISSING} is recorded as missing.
+     */
+    public void add(int year, int month, float minTemp, float meanTemp, float maxTemp, float snow, float precipitation) {
+        ensureLoaded(ALL_COLUMNS);
+        ensureCapacity(size + 1);
+        years[size] = (short) year;
+        months[size] = (byte) month;
+        set(ReadingOf.MIN_TEMP, size, minTemp);
+        set(ReadingOf.MEAN_TEMP, size, meanTemp);
+        set(ReadingOf.MAX_TEMP, size, maxTemp);
+        set(ReadingOf.SNOW, size, snow);
+        set(ReadingOf.PRECIPITATION, size, precipitation);
+        size++;
+        yearStarts = null;
+    }
+
+    public void addAll(ReadingStore other) {
+        ensureLoaded(ALL_COLUMNS);
+        ensureCapacity(size + other.size);
+        for (int i = 0; i < other.size; i++) {
+            years[size] = (short) other.getYear(i);
+            months[size] = (byte) other.getMonth(i);
+            for (ReadingOf f : FIELDS) {
+                set(f, size, other.get(f, i));
+            }
+            size++;
+        }
+        yearStarts = null;
+    }
+
+    /**
+     * Removes every reading of {@code month} of {@code year}, keeping the others in their order, and returns how
+     * many were removed.
+     */
+    int removeMonth(int year, int month) {
+        ensureLoaded(ALL_COLUMNS);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (years[i] == year && months[i] == month) {
+                continue;
+            }
+            if (kept != i) {
+                years[kept] = years[i];
+                months[kept] = months[i];
+                for (int f = 0; f < FIELDS.length; f++) {
+                    long[] bits = missing[f];
+                    values[f][kept] = values[f][i];
+                    bits[kept >>> 6] = bits[kept >>> 6] & ~(1L << kept) | (bits[i >>> 6] >>> i & 1L) << kept;
+                }
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        if (removed > 0) {
+            for (long[] bits : missing) {
+                for (int i = kept; i < size; i++) {
+                    bits[i >>> 6] &= ~(1L << i);
+                }
+            }
+            size = kept;
+            yearStarts = null;
+        }
+        return removed;
+    }
+
+    private void set(ReadingOf field, int i, float value) {
+        int f = field.ordinal();
+        if (value == MISSING) {
+            values[f][i] = 0;
+            missing[f][i >>> 6] |= 1L << i;
+        } else {
+            values[f][i] = value;
+            missing[f][i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    private static int fieldColumn(ReadingOf field) {
+        return 4 << field.ordinal();
+    }
+
+    private void ensureLoaded(int columns) {
+        if ((loaded & columns) != columns) {
+            load(columns);
+        }
+    }
+
+    private synchronized void load(int columns) {
+        int pending = columns & ~loaded;
+        if ((pending & YEARS) != 0) {
+            short[] column = new short[size];
+            source.readYears(column);
+            years = column;
+        }
+        if ((pending & MONTHS) != 0) {
+            byte[] column = new byte[size];
+            source.readMonths(column);
+            months = column;
+        }
+        for (ReadingOf f : FIELDS) {
+            if ((pending & fieldColumn(f)) != 0) {
+                float[] column = new float[size];
+                long[] bits = new long[words(size)];
+                source.readValues(f, column);
+                source.readMissing(f, bits);
+                values[f.ordinal()] = column;
+                missing[f.ordinal()] = bits;
+            }
+        }
+        loaded |= pending;
+        if (loaded == ALL_COLUMNS) {
+            source = null;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > years.length) {
+            resize(Math.max(capacity, years.length + (years.length >> 1)));
+        }
+    }
+
+    private void resize(int capacity) {
+        years = Arrays.copyOf(years, capacity);
+        months = Arrays.copyOf(months, capacity);
+        for (int f = 0; f < FIELDS.length; f++) {
+            values[f] = Arrays.copyOf(values[f], capacity);
+            missing[f] = Arrays.copyOf(missing[f], words(capacity));
+        }
+    }
+
+    /**
+     * Puts the readings in (year, month) order and releases the spare capacity left over from appending. Readings
+     * of the same month keep the order they were added in.
+     */
+    public void trimToSize() {
+        ensureLoaded(ALL_COLUMNS);
+        if (size != years.length) {
+            resize(Math.max(size, 1));
+        }
+        if (!inTimeOrder(years, months, size)) {
+            sortByTime();
+        }
+    }
+
+    private static boolean inTimeOrder(short[] years, byte[] months, int size) {
+        for (int i = 1; i < size; i++) {
+            if (years[i] < years[i - 1] || years[i] == years[i - 1] && months[i] < months[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sortByTime() {
+        // Sort (year, month, position) keys, so the order is stable and the positions give the permutation.
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) (years[i] * 16 + months[i]) << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        short[] sortedYears = new short[years.length];
+        byte[] sortedMonths = new byte[months.length];
+        for (int i = 0; i < size; i++) {
+            int from = (int) keys[i];
+            sortedYears[i] = years[from];
+            sortedMonths[i] = months[from];
+        }
+        years = sortedYears;
+        months = sortedMonths;
+        for (int f = 0; f < FIELDS.length; f++) {
+            float[] column = values[f], sortedColumn = new float[column.length];
+            long[] bits = missing[f], sortedBits = new long[bits.length];
+            for (int i = 0; i < size; i++) {
+                int from = (int) keys[i];
+                sortedColumn[i] = column[from];
+                sortedBits[i >>> 6] |= (bits[from >>> 6] >>> from & 1L) << i;
+            }
+            values[f] = sortedColumn;
+            missing[f] = sortedBits;
+        }
+        yearStarts = null;
+    }
+
+    /**
+     * Returns whether the readings are in (year, month) order, so that {@link #yearStart} can be used.
+     */
+    boolean isTimeOrdered() {
+        return getYearStarts() != UNORDERED;
+    }
+
+    /**
+     * Returns the index of the first reading from {@code year} or later, or {@link #size()} if there is none. The
+     * readings of years {@code [from, to]} are therefore {@code [yearStart(from), yearStart(to + 1))}. Only valid
+     * when {@link #isTimeOrdered()}.
+     */
+    int yearStart(int year) {
+        int[] starts = getYearStarts();
+        return starts[Math.max(0, Math.min(starts.length - 1, year - firstYear))];
+    }
+
+    private int[] getYearStarts() {
+        int[] starts = yearStarts;
+        return starts != null ? starts : indexYears();
+    }
+
+    private synchronized int[] indexYears() {
+        if (yearStarts != null) {
+            return yearStarts;
+        }
+        short[] years = getYears();
+        if (!inTimeOrder(years, getMonths(), size)) {
+            yearStarts = UNORDERED;
+            return UNORDERED;
+        }
+        int first = size > 0 ? years[0] : 0, last = size > 0 ? years[size - 1] : -1;
+        int[] starts = new int[last - first + 2];
+        int i = 0;
+        for (int year = first; year <= last + 1; year++) {
+            while (i < size && years[i] < year) {
+                i++;
+            }
+            starts[year - first] = i;
+        }
+        firstYear = first;
+        yearStarts = starts;
+        return starts;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getYear(int i) {
+        return getYears()[i];
+    }
+
+    public int getMonth(int i) {
+        return getMonths()[i];
+    }
+
+    public Season getSeason(int i) {
+        return seasonOf(getMonth(i));
+    }
+
+    // ;)
+    static Season seasonOf(int month) {
+        if (month == 3 || month == 4 || month == 5) {
+            return Season.SPRING;
+        }
+        if (month == 6 || month == 7 || month == 8) {
+            return Season.SUMMER;
+        }
+        if (month == 9 || month == 10 || month == 11) {
+            return Season.AUTUMN;
+        }
+        if (month == 12 || month == 1 || month == 2) {
+            return Season.WINTER;
+        }
+        return null;
+    }
+
+    public boolean isMissing(ReadingOf field, int i) {
+        return (getMissing(field)[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns the value of a field, or {@link #MISSING} when it was not reported.
+     */
+    public float get(ReadingOf field, int i) {
+        return isMissing(field, i) ? MISSING : values[field.ordinal()][i];
+    }
+
+    short[] getYears() {
+        ensureLoaded(YEARS);
+        return years;
+    }
+
+    byte[] getMonths() {
+        ensureLoaded(MONTHS);
+        return months;
+    }
+
+    float[] getColumn(ReadingOf field) {
+        ensureLoaded(fieldColumn(field));
+        return values[field.ordinal()];
+    }
+
+    long[] getMissing(ReadingOf field) {
+        ensureLoaded(fieldColumn(field));
+        return missing[field.ordinal()];
+    }
+
+    /**
+     * Supplies the columns of a store that has not been read into memory yet.
+     */
+    interface ColumnSource {
+        void readYears(short[] destination);
+
+        void readMonths(byte[] destination);
+
+        void readValues(ReadingOf field, float[] destination);
+
+        void readMissing(ReadingOf field, long[] destination);
+    }
+
+    /**
+     * Reads and writes the store as the array of reading objects produced by the original object model.
+     */
+    static class Adapter extends TypeAdapter<ReadingStore> {
+
+        @Override
+        public void write(JsonWriter out, ReadingStore store) throws IOException {
+            if (store == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < store.size; i++) {
+                out.beginObject();
+                out.name("year").value(store.getYear(i));
+                out.name("month").value(store.getMonth(i));
+                for (ReadingOf f : FIELDS) {
+                    out.name(f.toString()).value((Number) store.get(f, i));
+                }
+                out.endObject();
+            }
+            out.endArray();
+        }
+
+        @Override
+        public ReadingStore read(JsonReader in) throws IOException {
+            ReadingStore store = new ReadingStore();
+            in.beginArray();
+            while (in.hasNext()) {
+                readReading(in, store, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+            in.endArray();
+            store.trimToSize();
+            return store;
+        }
+
+        /**
+         * Reads one reading object and appends it when its year is within {@code [fromYear, toYear]}.
+         */
+        static void readReading(JsonReader in, ReadingStore store, int fromYear, int toYear) throws IOException {
+            int year = 0, month = 0;
+            float minTemp = MISSING, meanTemp = MISSING, maxTemp = MISSING, snow = MISSING, precipitation = MISSING;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "year" -> year = in.nextInt();
+                    case "month" -> month = in.nextInt();
+                    case "minTemp" -> minTemp = (float) in.nextDouble();
+                    case "meanTemp" -> meanTemp = (float) in.nextDouble();
+                    case "maxTemp" -> maxTemp = (float) in.nextDouble();
+                    case "snow" -> snow = (float) in.nextDouble();
+                    case "precipitation" -> precipitation = (float) in.nextDouble();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (year >= fromYear && year <= toYear) {
+                store.add(year, month, minTemp, meanTemp, maxTemp, snow, precipitation);
+            }
+        }
+    }
+}
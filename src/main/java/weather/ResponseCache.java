@@ -0,0 +1,268 @@
+package weather;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps every downloaded response as one gzip file per (year, month), so the dataset can be re-parsed without
+ * the network.
+ * <p>
+ * A response is compressed to a temporary file while the parser reads it, and only moved into place once it was
+ * read completely. The index lists each entry with its compressed and raw sizes, the CRC-32 of the raw XML and
+ * when it was fetched, which {@link #open} checks every read against. It is rewritten atomically by
+ * {@link #saveIndex()}, and entries written after the last save are picked up again from the directory when the
+ * cache is opened.
+ */
+class ResponseCache {
+    private static final String SUFFIX = ".xml.gz", INDEX_FILE = "index.txt";
+
+    private final Path directory;
+    private final TreeMap<YearMonth, Entry> index = new TreeMap<>();
+
+    private ResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    static ResponseCache open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ResponseCache cache = new ResponseCache(directory);
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexPath)) {
+            for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length == 5) {
+                    Entry entry = new Entry(YearMonth.parse(parts[0]), Long.parseLong(parts[1]),
+                            Long.parseLong(parts[2]), Long.parseLong(parts[3], 16), Instant.parse(parts[4]));
+                    if (Files.exists(cache.path(entry.period))) {
+                        cache.index.put(entry.period, entry);
+                    }
+                }
+            }
+        }
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path temp : temps) {
+                Files.delete(temp);
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                YearMonth period;
+                try {
+                    period = YearMonth.parse(name.substring(0, name.length() - SUFFIX.length()));
+                } catch (DateTimeParseException e) {
+                    System.out.println("Ignoring " + file + ", which is not a cached month");
+                    continue;
+                }
+                if (!cache.index.containsKey(period)) {
+                    try {
+                        cache.index.put(period, cache.describe(period));
+                    } catch (IOException e) {
+                        System.out.println("Ignoring unreadable " + file + ": " + e.getLocalizedMessage());
+                    }
+                }
+            }
+        }
+        return cache;
+    }
+
+    private Path path(YearMonth period) {
+        return directory.resolve(period + SUFFIX);
+    }
+
+    private Entry describe(YearMonth period) throws IOException {
+        CRC32 crc = new CRC32();
+        long rawBytes = 0;
+        try (InputStream in = new CheckedInputStream(decompress(period), crc)) {
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                rawBytes += n;
+            }
+        }
+        Path file = path(period);
+        return new Entry(period, Files.size(file), rawBytes, crc.getValue(), Files.getLastModifiedTime(file).toInstant());
+    }
+
+    synchronized List<YearMonth> periods() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    /**
+     * Opens the decompressed XML of a cached period. Closing the stream reads whatever is left of it and throws an
+     * {@link IOException} if its size or CRC-32 differ from the index, so a caller should close it before using
+     * what it parsed.
+     */
+    InputStream open(YearMonth period) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = index.get(period);
+        }
+        if (entry == null) {
+            throw new IOException("Not cached: " + period);
+        }
+        CRC32 crc = new CRC32();
+        return new CheckedInputStream(decompress(period), crc) {
+            private long rawBytes;
+            private boolean closed;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    rawBytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    rawBytes += n;
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    transferTo(OutputStream.nullOutputStream());
+                } finally {
+                    super.close();
+                }
+                if (rawBytes != entry.rawBytes || crc.getValue() != entry.crc) {
+                    throw new IOException("Cached " + period + " is corrupt: " + rawBytes + " bytes with CRC "
+                            + Long.toHexString(crc.getValue()) + ", expected " + entry.rawBytes + " with "
+                            + Long.toHexString(entry.crc));
+                }
+            }
+        };
+    }
+
+    private InputStream decompress(YearMonth period) throws IOException {
+        return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path(period))), 8192);
+    }
+
+    /**
+     * Starts caching the response for a period. The caller reads the body through {@link Writer#capture} and
+     * then either commits or aborts the writer.
+     */
+    Writer begin(int year, int month) throws IOException {
+        return new Writer(YearMonth.of(year, month));
+    }
+
+    private synchronized void put(Entry entry) {
+        index.put(entry.period, entry);
+    }
+
+    synchronized void saveIndex() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : index.values()) {
+            sb.append(e.period).append('\t').append(e.compressedBytes).append('\t').append(e.rawBytes).append('\t')
+                    .append(Long.toHexString(e.crc)).append('\t').append(e.fetched).append('\n');
+        }
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        Files.writeString(temp, sb, StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private record Entry(YearMonth period, long compressedBytes, long rawBytes, long crc, Instant fetched) {
+    }
+
+    class Writer {
+        private final YearMonth period;
+        private final Path temp;
+        private final OutputStream out;
+        private final CRC32 crc = new CRC32();
+        private long rawBytes;
+        private InputStream captured;
+
+        private Writer(YearMonth period) throws IOException {
+            this.period = period;
+            temp = Files.createTempFile(directory, period.toString(), ".tmp");
+            out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), 8192);
+        }
+
+        /**
+         * Wraps the response body so that everything read from it is also compressed into the cache entry. The
+         * wrapper ignores {@code close()}, which the StAX reader calls at the end of the document, so that
+         * {@link #commit()} can still copy any trailing bytes.
+         */
+        InputStream capture(InputStream body) {
+            captured = new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        out.write(b);
+                        crc.update(b);
+                        rawBytes++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        out.write(b, off, n);
+                        crc.update(b, off, n);
+                        rawBytes += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            return captured;
+        }
+
+        /**
+         * Copies whatever the parser left unread, then atomically replaces any earlier response for the period.
+         */
+        void commit() throws IOException {
+            if (captured != null) {
+                captured.transferTo(OutputStream.nullOutputStream());
+            }
+            out.close();
+            Path file = path(period);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            put(new Entry(period, Files.size(file), rawBytes, crc.getValue(), Instant.now()));
+        }
+
+        void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
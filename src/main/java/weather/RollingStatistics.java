@@ -0,0 +1,150 @@
+package weather;
+
+import java.util.Arrays;
+
+/**
+ * Mean, variance, minimum and maximum over the last {@code n} values for several window sizes at once, each in
+ * O(1) per update.
+ * <p>
+ * One ring buffer as long as the largest window holds the recent values. Every window keeps a running sum and
+ * sum of squares, plus monotonic deques of buffer positions for its minimum and maximum: a value is dropped from
+ * the back of the maximum deque as soon as a newer, larger value arrives, so the front is always the window's
+ * maximum and every value is pushed and popped at most once. Like the other aggregations, a statistic is
+ * {@link ReadingStore#MISSING} until its window has filled up.
+ */
+public class RollingStatistics {
+    private final int[] windows;
+    private final float[] ring;
+    private long count;
+    private final double[] sums, squares;
+    private final Deque[] minima, maxima;
+
+    public RollingStatistics(int... windows) {
+        if (windows.length == 0) {
+            throw new IllegalArgumentException("No windows");
+        }
+        int largest = 0;
+        for (int w : windows) {
+            if (w <= 0) {
+                throw new IllegalArgumentException("Invalid window " + w);
+            }
+            largest = Math.max(largest, w);
+        }
+        this.windows = windows.clone();
+        ring = new float[largest];
+        sums = new double[windows.length];
+        squares = new double[windows.length];
+        minima = new Deque[windows.length];
+        maxima = new Deque[windows.length];
+        for (int k = 0; k < windows.length; k++) {
+            minima[k] = new Deque(windows[k]);
+            maxima[k] = new Deque(windows[k]);
+        }
+    }
+
+    public void update(float value) {
+        for (int k = 0; k < windows.length; k++) {
+            if (count >= windows[k]) {
+                double leaving = ring[(int) ((count - windows[k]) % ring.length)];
+                sums[k] -= leaving;
+                squares[k] -= leaving * leaving;
+            }
+            sums[k] += value;
+            squares[k] += (double) value * value;
+
+            long oldest = count - windows[k] + 1;
+            minima[k].dropBefore(oldest);
+            maxima[k].dropBefore(oldest);
+            while (!minima[k].isEmpty() && ring[(int) (minima[k].last() % ring.length)] >= value) {
+                minima[k].removeLast();
+            }
+            while (!maxima[k].isEmpty() && ring[(int) (maxima[k].last() % ring.length)] <= value) {
+                maxima[k].removeLast();
+            }
+            minima[k].addLast(count);
+            maxima[k].addLast(count);
+        }
+        ring[(int) (count % ring.length)] = value;
+        count++;
+    }
+
+    public int getWindowCount() {
+        return windows.length;
+    }
+
+    public int getWindow(int k) {
+        return windows[k];
+    }
+
+    public boolean isFull(int k) {
+        return count >= windows[k];
+    }
+
+    public float getMean(int k) {
+        return isFull(k) ? (float) (sums[k] / windows[k]) : ReadingStore.MISSING;
+    }
+
+    /**
+     * Population variance of the window.
+     */
+    public float getVariance(int k) {
+        if (!isFull(k)) {
+            return ReadingStore.MISSING;
+        }
+        double mean = sums[k] / windows[k];
+        return (float) Math.max(0, squares[k] / windows[k] - mean * mean);
+    }
+
+    public float getMin(int k) {
+        return isFull(k) ? ring[(int) (minima[k].first() % ring.length)] : ReadingStore.MISSING;
+    }
+
+    public float getMax(int k) {
+        return isFull(k) ? ring[(int) (maxima[k].first() % ring.length)] : ReadingStore.MISSING;
+    }
+
+    @Override
+    public String toString() {
+        return "RollingStatistics" + Arrays.toString(windows);
+    }
+
+    /**
+     * Bounded deque of update positions, stored in a ring of its own.
+     */
+    private static class Deque {
+        private final long[] positions;
+        private int head, size;
+
+        Deque(int window) {
+            positions = new long[window + 1];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long first() {
+            return positions[head];
+        }
+
+        long last() {
+            return positions[(head + size - 1) % positions.length];
+        }
+
+        void addLast(long position) {
+            positions[(head + size) % positions.length] = position;
+            size++;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void dropBefore(long oldest) {
+            while (size > 0 && positions[head] < oldest) {
+                head = (head + 1) % positions.length;
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package weather;
+
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary snapshot of the stations, opened with {@link FileChannel#map}.
+ * <p>
+ * Layout, little-endian, with every section aligned to 8 bytes:
+ * <pre>
+ * header    magic, version, station count, reading count, bitmap words, then the offset of each section
+ * stations  per station: identifier, name, province ordinal (-1 when unknown), latitude, longitude,
+ *           first reading, reading count, first bitmap word
+ * years     short per reading
+ * months    byte per reading
+ * values    one float column per {@link ReadingOf}, each covering every reading
+ * missing   one bitmap per {@link ReadingOf}; each station's bits start on a fresh word
+ * </pre>
+ * Readings of a station are contiguous in every column, and {@link ReadingStore} copies a station's column out
+ * of the mapping only when a query first reads it.
+ */
+class Snapshot {
+    static final int MAGIC = 0x43575331; // "CWS1"
+    static final int VERSION = 1;
+    private static final ReadingOf[] FIELDS = ReadingOf.values();
+    private static final int HEADER_SIZE = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Writes the stations to a temporary file next to {@code path} and moves it into place.
+     */
+    static void write(Path path, List<Station> stations) throws IOException {
+        int readingCount = 0, wordCount = 0;
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(table);
+        for (Station s : stations) {
+            int size = s.getReadings().size();
+            out.writeUTF(s.getIdentifier() == null ? "" : s.getIdentifier());
+            out.writeUTF(s.getName() == null ? "" : s.getName());
+            out.writeByte(s.getProvince() == null ? -1 : s.getProvince().ordinal());
+            out.writeFloat(s.getLatitude());
+            out.writeFloat(s.getLongitude());
+            out.writeInt(readingCount);
+            out.writeInt(size);
+            out.writeInt(wordCount);
+            readingCount = Math.addExact(readingCount, size);
+            wordCount += ReadingStore.words(size);
+        }
+        if (readingCount > Integer.MAX_VALUE / Float.BYTES) {
+            throw new IOException("Too many readings for a snapshot: " + readingCount);
+        }
+
+        long tableOffset = HEADER_SIZE;
+        long yearsOffset = align(tableOffset + table.size());
+        long monthsOffset = align(yearsOffset + (long) readingCount * Short.BYTES);
+        long valuesOffset = align(monthsOffset + readingCount);
+        long missingOffset = align(valuesOffset + (long) FIELDS.length * readingCount * Float.BYTES);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(stations.size()).putInt(readingCount).putInt(wordCount)
+                    .putLong(tableOffset).putLong(yearsOffset).putLong(monthsOffset).putLong(valuesOffset)
+                    .putLong(missingOffset);
+            pad(channel, buffer, tableOffset);
+            flush(channel, buffer);
+            ByteBuffer tableBytes = ByteBuffer.wrap(table.toByteArray());
+            while (tableBytes.hasRemaining()) {
+                channel.write(tableBytes);
+            }
+            pad(channel, buffer, yearsOffset);
+
+            for (Station s : stations) {
+                ReadingStore r = s.getReadings();
+                short[] years = r.getYears();
+                for (int i = 0; i < r.size(); i++) {
+                    ensureRemaining(channel, buffer, Short.BYTES).putShort(years[i]);
+                }
+            }
+            pad(channel, buffer, monthsOffset);
+            for (Station s : stations) {
+                ReadingStore r = s.getReadings();
+                byte[] months = r.getMonths();
+                for (int i = 0; i < r.size(); i++) {
+                    ensureRemaining(channel, buffer, 1).put(months[i]);
+                }
+            }
+            pad(channel, buffer, valuesOffset);
+            for (ReadingOf f : FIELDS) {
+                for (Station s : stations) {
+                    ReadingStore r = s.getReadings();
+                    float[] values = r.getColumn(f);
+                    for (int i = 0; i < r.size(); i++) {
+                        ensureRemaining(channel, buffer, Float.BYTES).putFloat(values[i]);
+                    }
+                }
+            }
+            pad(channel, buffer, missingOffset);
+            for (ReadingOf f : FIELDS) {
+                for (Station s : stations) {
+                    ReadingStore r = s.getReadings();
+                    long[] missing = r.getMissing(f);
+                    for (int w = 0; w < ReadingStore.words(r.size()); w++) {
+                        ensureRemaining(channel, buffer, Long.BYTES).putLong(missing[w]);
+                    }
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+        return buffer;
+    }
+
+    private static void pad(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (channel.position() + buffer.position() < offset) {
+            ensureRemaining(channel, buffer, 1).put((byte) 0);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Maps a snapshot and returns its stations. Reading columns stay in the mapping until they are used.
+     */
+    static ArrayList<Station> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a station snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + path);
+            }
+            int stationCount = header.getInt(), readingCount = header.getInt(), wordCount = header.getInt();
+            long tableOffset = header.getLong(), yearsOffset = header.getLong(), monthsOffset = header.getLong(),
+                    valuesOffset = header.getLong(), missingOffset = header.getLong();
+
+            Columns columns = new Columns();
+            columns.years = map(channel, yearsOffset, (long) readingCount * Short.BYTES);
+            columns.months = map(channel, monthsOffset, readingCount);
+            for (ReadingOf f : FIELDS) {
+                columns.values[f.ordinal()] = map(channel,
+                        valuesOffset + (long) f.ordinal() * readingCount * Float.BYTES, (long) readingCount * Float.BYTES);
+                columns.missing[f.ordinal()] = map(channel,
+                        missingOffset + (long) f.ordinal() * wordCount * Long.BYTES, (long) wordCount * Long.BYTES);
+            }
+
+            ByteBuffer table = map(channel, tableOffset, yearsOffset - tableOffset);
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(table));
+            Province[] provinces = Province.values();
+            ArrayList<Station> stations = new ArrayList<>(stationCount);
+            for (int k = 0; k < stationCount; k++) {
+                String identifier = in.readUTF().intern();
+                String name = in.readUTF();
+                int province = in.readByte();
+                float latitude = in.readFloat(), longitude = in.readFloat();
+                int first = in.readInt(), size = in.readInt(), firstWord = in.readInt();
+                ReadingStore readings = new ReadingStore(columns.station(first, size, firstWord), size);
+                stations.add(new Station(name, identifier, province < 0 ? null : provinces[province],
+                        latitude, longitude, readings));
+            }
+            return stations;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * The mapped reading sections shared by every station of one snapshot.
+     */
+    private static class Columns {
+        ByteBuffer years, months;
+        final ByteBuffer[] values = new ByteBuffer[FIELDS.length];
+        final ByteBuffer[] missing = new ByteBuffer[FIELDS.length];
+
+        ReadingStore.ColumnSource station(int first, int size, int firstWord) {
+            return new ReadingStore.ColumnSource() {
+                @Override
+                public void readYears(short[] destination) {
+                    years.asShortBuffer().get(first, destination, 0, size);
+                }
+
+                @Override
+                public void readMonths(byte[] destination) {
+                    months.get(first, destination, 0, size);
+                }
+
+                @Override
+                public void readValues(ReadingOf field, float[] destination) {
+                    values[field.ordinal()].asFloatBuffer().get(first, destination, 0, size);
+                }
+
+                @Override
+                public void readMissing(ReadingOf field, long[] destination) {
+                    missing[field.ordinal()].asLongBuffer().get(firstWord, destination, 0, destination.length);
+                }
+            };
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package weather;
+
+import weather.enums.Province;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A one-degree latitude/longitude grid over the stations for radius queries.
+ * <p>
+ * A query only visits the cells covering the bounding box of its circle, then applies the exact great-circle
+ * test to the stations found there. Matches are returned in the order of the indexed list, so aggregating
+ * them gives the same result as filtering the whole list.
+ */
+class StationIndex {
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final int LAT_CELLS = 180, LON_CELLS = 360;
+
+    private final List<Station> stations;
+    private final int[][] cells;
+    private final int[] cellSizes;
+
+    StationIndex(List<Station> stations) {
+        this.stations = stations;
+        cells = new int[LAT_CELLS * LON_CELLS][];
+        cellSizes = new int[LAT_CELLS * LON_CELLS];
+        for (int i = 0; i < stations.size(); i++) {
+            Station s = stations.get(i);
+            int c = latCell(s.getLatitude()) * LON_CELLS + lonCell(s.getLongitude());
+            if (cells[c] == null) {
+                cells[c] = new int[4];
+            } else if (cellSizes[c] == cells[c].length) {
+                cells[c] = Arrays.copyOf(cells[c], cells[c].length * 2);
+            }
+            cells[c][cellSizes[c]++] = i;
+        }
+    }
+
+    private static int latCell(double latitude) {
+        return (int) Math.max(0, Math.min(LAT_CELLS - 1, Math.floor(latitude + 90)));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor(longitude + 180), LON_CELLS);
+    }
+
+    /**
+     * Returns the stations within {@code km} of the point, restricted to {@code province} unless it is null or
+     * {@link Province#CANADA}.
+     */
+    ArrayList<Station> within(float km, float latitude, float longitude, Province province) {
+        boolean allProvinces = province == null || province == Province.CANADA;
+        double angle = km / EARTH_RADIUS_KM;
+        if (angle >= Math.PI) {
+            ArrayList<Station> all = new ArrayList<>();
+            for (Station s : stations) {
+                if (allProvinces || s.getProvince() == province) {
+                    all.add(s);
+                }
+            }
+            return all;
+        }
+        // Haversine: the distance is within range when hav(distance / R) <= hav(km / R).
+        double threshold = Math.pow(Math.sin(angle / 2), 2);
+
+        double lat = Math.toRadians(latitude);
+        double minLat = Math.toDegrees(lat - angle), maxLat = Math.toDegrees(lat + angle);
+        int firstLonCell = 0, lastLonCell = LON_CELLS - 1;
+        if (minLat > -90 && maxLat < 90) {
+            double s = Math.sin(angle) / Math.cos(lat);
+            if (s < 1) {
+                double deltaLon = Math.toDegrees(Math.asin(s));
+                firstLonCell = (int) Math.floor(longitude - deltaLon + 180);
+                lastLonCell = (int) Math.floor(longitude + deltaLon + 180);
+            }
+        }
+
+        int[] matches = new int[16];
+        int found = 0;
+        double cosLat = Math.cos(lat);
+        for (int latCell = latCell(minLat); latCell <= latCell(maxLat); latCell++) {
+            for (int lonCell = firstLonCell; lonCell <= lastLonCell; lonCell++) {
+                int c = latCell * LON_CELLS + Math.floorMod(lonCell, LON_CELLS);
+                for (int k = 0; k < cellSizes[c]; k++) {
+                    int i = cells[c][k];
+                    Station s = stations.get(i);
+                    if ((allProvinces || s.getProvince() == province)
+                            && haversine(lat, cosLat, longitude, s.getLatitude(), s.getLongitude()) <= threshold) {
+                        if (found == matches.length) {
+                            matches = Arrays.copyOf(matches, found * 2);
+                        }
+                        matches[found++] = i;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(matches, 0, found);
+        ArrayList<Station> result = new ArrayList<>(found);
+        for (int k = 0; k < found; k++) {
+            result.add(stations.get(matches[k]));
+        }
+        return result;
+    }
+
+    private static double haversine(double lat1, double cosLat1, double lon1, double latitude2, double longitude2) {
+        double lat2 = Math.toRadians(latitude2);
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(longitude2 - lon1) / 2);
+        return sinLat * sinLat + cosLat1 * Math.cos(lat2) * sinLon * sinLon;
+    }
+}
@@ -0,0 +1,146 @@
+package weather;
+
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The one set of stations shared by every download worker, keyed by identifier.
+ * <p>
+ * A station's metadata is stored once, with interned strings, the first time any month mentions it. Readings
+ * arrive in per-month {@link Batch}es and are appended under the lock of each station they belong to, so workers
+ * only contend when they write the same station at the same moment. {@link #consistent} waits for in-flight
+ * batches and blocks new ones, giving a view where every month is either fully merged or not at all.
+ */
+class StationRegistry {
+    private static final int FIELDS = ReadingOf.values().length;
+
+    private final ConcurrentHashMap<String, Station> stations = new ConcurrentHashMap<>();
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    StationRegistry(Collection<Station> existing) {
+        for (Station s : existing) {
+            stations.put(s.getIdentifier(), s);
+        }
+    }
+
+    Station getOrCreate(String identifier, String name, Province province, float latitude, float longitude) {
+        String key = identifier == null ? "" : identifier;
+        Station station = stations.get(key);
+        if (station == null) {
+            station = stations.computeIfAbsent(key.intern(), id -> new Station(name == null ? null : name.intern(),
+                    id, province, latitude, longitude, new ReadingStore()));
+        }
+        return station;
+    }
+
+    Batch newBatch(int year, int month) {
+        return new Batch(year, month);
+    }
+
+    /**
+     * Runs {@code action} while no batch is being committed.
+     */
+    <E extends Exception> void consistent(Action<E> action) throws E {
+        commitLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * Returns the stations sorted by identifier.
+     */
+    ArrayList<Station> toList() {
+        ArrayList<Station> list = new ArrayList<>(stations.values());
+        list.sort(Comparator.comparing(Station::getIdentifier));
+        return list;
+    }
+
+    /**
+     * The readings of one month, buffered until the month has been parsed completely so that a failed or retried
+     * response never leaves part of a month behind.
+     */
+    class Batch {
+        private final int year, month;
+        private Station[] owners = new Station[64];
+        private float[] values = new float[64 * FIELDS];
+        private int size;
+
+        private Batch(int year, int month) {
+            this.year = year;
+            this.month = month;
+        }
+
+        void add(Station station, float[] reading) {
+            if (size == owners.length) {
+                owners = Arrays.copyOf(owners, size * 2);
+                values = Arrays.copyOf(values, size * 2 * FIELDS);
+            }
+            owners[size] = station;
+            System.arraycopy(reading, 0, values, size * FIELDS, FIELDS);
+            size++;
+        }
+
+        /**
+         * Appends every buffered reading to its station, then runs {@code completion} before any
+         * {@link #consistent} view can observe the month.
+         */
+        <E extends Exception> void commit(Action<E> completion) throws E {
+            commitLock.readLock().lock();
+            try {
+                append();
+                completion.run();
+            } finally {
+                commitLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Like {@link #commit}, but first removes every reading of the month that is already merged, so a month
+         * fetched again replaces its earlier response instead of adding to it. Other commits wait meanwhile.
+         */
+        <E extends Exception> void replace(Action<E> completion) throws E {
+            commitLock.writeLock().lock();
+            try {
+                for (Station s : stations.values()) {
+                    ReadingStore readings = s.getReadings();
+                    synchronized (readings) {
+                        readings.removeMonth(year, month);
+                    }
+                }
+                append();
+                completion.run();
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+        }
+
+        private void append() {
+            for (int k = 0; k < size; k++) {
+                ReadingStore readings = owners[k].getReadings();
+                int v = k * FIELDS;
+                synchronized (readings) {
+                    readings.add(year, month, values[v], values[v + 1], values[v + 2], values[v + 3], values[v + 4]);
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
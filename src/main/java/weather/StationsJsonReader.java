@@ -0,0 +1,107 @@
+package weather;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import weather.enums.Province;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Streams a stations.json array one station at a time, appending readings straight into each station's
+ * {@link ReadingStore}. Stations outside the province and readings outside the year range are skipped as they
+ * are read, so memory is bounded by what is kept rather than by the size of the file.
+ */
+class StationsJsonReader {
+    private final Province province;
+    private final int startYear, endYear;
+
+    /**
+     * @param province  the only province to keep, or null or {@link Province#CANADA} for all
+     * @param startYear first year to keep, or 0 for no lower bound
+     * @param endYear   last year to keep, or 0 for no upper bound
+     */
+    StationsJsonReader(Province province, int startYear, int endYear) {
+        this.province = province == Province.CANADA ? null : province;
+        this.startYear = startYear == 0 ? Integer.MIN_VALUE : startYear;
+        this.endYear = endYear == 0 ? Integer.MAX_VALUE : endYear;
+    }
+
+    ArrayList<Station> read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    ArrayList<Station> read(Reader reader) throws IOException {
+        ArrayList<Station> stations = new ArrayList<>();
+        JsonReader in = new JsonReader(reader);
+        in.beginArray();
+        while (in.hasNext()) {
+            Station station = readStation(in);
+            if (station != null) {
+                stations.add(station);
+            }
+        }
+        in.endArray();
+        return stations;
+    }
+
+    private Station readStation(JsonReader in) throws IOException {
+        String name = null, identifier = null;
+        Province stationProvince = null;
+        float latitude = ReadingStore.MISSING, longitude = ReadingStore.MISSING;
+        ReadingStore readings = new ReadingStore();
+        boolean keep = true;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "name" -> name = in.nextString();
+                case "identifier" -> identifier = in.nextString().intern();
+                case "province" -> {
+                    stationProvince = parseProvince(in.nextString());
+                    keep = province == null || stationProvince == province;
+                }
+                case "latitude" -> latitude = (float) in.nextDouble();
+                case "longitude" -> longitude = (float) in.nextDouble();
+                case "readings" -> {
+                    if (keep) {
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            ReadingStore.Adapter.readReading(in, readings, startYear, endYear);
+                        }
+                        in.endArray();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (!keep || (province != null && stationProvince != province) || readings.size() == 0) {
+            return null;
+        }
+        readings.trimToSize();
+        return new Station(name, identifier, stationProvince, latitude, longitude, readings);
+    }
+
+    private static Province parseProvince(String code) {
+        try {
+            return Province.valueOf(code);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
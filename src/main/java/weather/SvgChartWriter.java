@@ -0,0 +1,189 @@
+package weather;
+
+import org.apache.commons.io.FileUtils;
+import org.jfree.data.xy.XYDataset;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * Writes charts as SVG: the same series, colours and line widths as the PNG charts, drawn as polylines over a
+ * simple year/value grid.
+ * <p>
+ * Nothing is rasterized or compressed, so it is much faster than PNG and the files stay small because every
+ * series is a single path.
+ */
+class SvgChartWriter implements ChartWriter {
+    private static final int LEFT = 90, RIGHT = 40, TOP = 70, BOTTOM = 110;
+    private static final int YEAR_TICK = 10, VALUE_TICKS = 8;
+
+    private final int width, height;
+
+    SvgChartWriter(int width, int height) {
+        if (width <= LEFT + RIGHT || height <= TOP + BOTTOM) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public String extension() {
+        return "svg";
+    }
+
+    @Override
+    public String settings() {
+        return "svg " + width + "x" + height;
+    }
+
+    @Override
+    public void write(File file, String title, XYDataset dataset) throws IOException {
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < dataset.getSeriesCount(); s++) {
+            for (int i = 0; i < dataset.getItemCount(s); i++) {
+                double x = dataset.getXValue(s, i), y = dataset.getYValue(s, i);
+                if (!Double.isNaN(y)) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (minX > maxX) {
+            minX = maxX = minY = maxY = 0;
+        }
+        double yStep = niceStep((maxY - minY) / VALUE_TICKS);
+        minY = Math.floor(minY / yStep) * yStep;
+        maxY = Math.max(Math.ceil(maxY / yStep) * yStep, minY + yStep);
+        if (minX == maxX) {
+            maxX = minX + 1;
+        }
+
+        Axis axis = new Axis(minX, maxX, minY, maxY);
+        StringBuilder svg = new StringBuilder(64 * 1024);
+        svg.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"")
+                .append(height).append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" font-family=\"SansSerif\">\n")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n")
+                .append("<text x=\"").append(width / 2).append("\" y=\"40\" font-size=\"24\" font-weight=\"bold\" text-anchor=\"middle\">")
+                .append(escape(title)).append("</text>\n")
+                .append("<rect x=\"").append(LEFT).append("\" y=\"").append(TOP).append("\" width=\"")
+                .append(width - LEFT - RIGHT).append("\" height=\"").append(height - TOP - BOTTOM)
+                .append("\" fill=\"#eeeeee\" stroke=\"gray\"/>\n");
+
+        ZoneId zone = ZoneId.systemDefault();
+        int firstYear = Instant.ofEpochMilli((long) minX).atZone(zone).getYear();
+        int lastYear = Instant.ofEpochMilli((long) maxX).atZone(zone).getYear();
+        for (int year = (firstYear + YEAR_TICK - 1) / YEAR_TICK * YEAR_TICK; year <= lastYear; year += YEAR_TICK) {
+            double x = axis.x(LocalDate.of(year, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli());
+            if (x < LEFT || x > width - RIGHT) {
+                continue;
+            }
+            line(svg, x, TOP, x, height - BOTTOM, "white");
+            svg.append("<text x=\"").append(format(x)).append("\" y=\"").append(height - BOTTOM + 22)
+                    .append("\" font-size=\"14\" text-anchor=\"middle\">").append(year).append("</text>\n");
+        }
+        for (double value = minY; value <= maxY + yStep / 2; value += yStep) {
+            double y = axis.y(value);
+            line(svg, LEFT, y, width - RIGHT, y, "white");
+            svg.append("<text x=\"").append(LEFT - 8).append("\" y=\"").append(format(y + 5))
+                    .append("\" font-size=\"14\" text-anchor=\"end\">").append(format(value)).append("</text>\n");
+        }
+        svg.append("<text x=\"").append(LEFT + (width - LEFT - RIGHT) / 2).append("\" y=\"").append(height - BOTTOM + 50)
+                .append("\" font-size=\"16\" text-anchor=\"middle\">Year</text>\n")
+                .append("<text x=\"25\" y=\"").append(TOP + (height - TOP - BOTTOM) / 2)
+                .append("\" font-size=\"16\" text-anchor=\"middle\" transform=\"rotate(-90 25 ")
+                .append(TOP + (height - TOP - BOTTOM) / 2).append(")\">Value</text>\n");
+
+        int legendX = LEFT;
+        for (int s = 0; s < dataset.getSeriesCount(); s++) {
+            String colour = colour(Graph.seriesPaint(s, dataset.getSeriesCount()));
+            float stroke = Graph.seriesWidth(s, dataset.getSeriesCount());
+            svg.append("<polyline fill=\"none\" stroke=\"").append(colour).append("\" stroke-width=\"")
+                    .append(format(stroke)).append("\" stroke-linejoin=\"round\" points=\"");
+            for (int i = 0; i < dataset.getItemCount(s); i++) {
+                double y = dataset.getYValue(s, i);
+                if (!Double.isNaN(y)) {
+                    svg.append(format(axis.x(dataset.getXValue(s, i)))).append(',').append(format(axis.y(y))).append(' ');
+                }
+            }
+            svg.append("\"/>\n");
+
+            int legendY = height - 25;
+            line(svg, legendX, legendY - 5, legendX + 30, legendY - 5, colour);
+            String key = String.valueOf(dataset.getSeriesKey(s));
+            svg.append("<text x=\"").append(legendX + 38).append("\" y=\"").append(legendY)
+                    .append("\" font-size=\"14\">").append(escape(key)).append("</text>\n");
+            legendX += 60 + key.length() * 9;
+        }
+        svg.append("</svg>\n");
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), StandardCharsets.UTF_8))) {
+            out.append(svg);
+        }
+    }
+
+    private class Axis {
+        private final double minX, maxX, minY, maxY;
+
+        Axis(double minX, double maxX, double minY, double maxY) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        double x(double value) {
+            return LEFT + (value - minX) / (maxX - minX) * (width - LEFT - RIGHT);
+        }
+
+        double y(double value) {
+            return height - BOTTOM - (value - minY) / (maxY - minY) * (height - TOP - BOTTOM);
+        }
+    }
+
+    /**
+     * Rounds {@code raw} up to 1, 2 or 5 times a power of ten.
+     */
+    private static double niceStep(double raw) {
+        if (!(raw > 0)) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / magnitude;
+        return (fraction <= 1 ? 1 : fraction <= 2 ? 2 : fraction <= 5 ? 5 : 10) * magnitude;
+    }
+
+    private static void line(StringBuilder svg, double x1, double y1, double x2, double y2, String colour) {
+        svg.append("<line x1=\"").append(format(x1)).append("\" y1=\"").append(format(y1)).append("\" x2=\"")
+                .append(format(x2)).append("\" y2=\"").append(format(y2)).append("\" stroke=\"").append(colour)
+                .append("\" stroke-width=\"2\"/>\n");
+    }
+
+    private static String format(double value) {
+        String s = String.format(Locale.ROOT, "%.2f", value);
+        s = s.replaceAll("\\.?0+$", "");
+        return s.equals("-0") ? "0" : s;
+    }
+
+    private static String colour(Color c) {
+        return String.format(Locale.ROOT, "#%02x%02x%02x", c.getRed(), c.getGreen(), c.getBlue());
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,132 @@
+package weather;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+import java.util.Arrays;
+
+/**
+ * Linear trend of a yearly series: the least-squares line, Sen's slope and the Mann-Kendall test for a
+ * monotonic trend.
+ * <p>
+ * The least-squares line is computed in a single pass from running means and co-moments, which is stable even
+ * with years in the thousands. Sen's slope is the median of the slopes between every pair of years, and the
+ * Mann-Kendall statistic counts how many later values are above rather than below earlier ones; both are
+ * O(n²), which is nothing for a series of about a hundred years. The p-value is two-sided, from the normal
+ * approximation with the variance corrected for ties.
+ */
+public class Trend {
+    private static final NormalDistribution NORMAL = new NormalDistribution();
+
+    private final int count;
+    private final double slope, intercept, senSlope, z, pValue;
+    private final long s;
+
+    private Trend(int count, double slope, double intercept, double senSlope, long s, double z, double pValue) {
+        this.count = count;
+        this.slope = slope;
+        this.intercept = intercept;
+        this.senSlope = senSlope;
+        this.s = s;
+        this.z = z;
+        this.pValue = pValue;
+    }
+
+    /**
+     * Computes the trend of {@code values}, where {@code values[i]} belongs to {@code startYear + i} and
+     * {@link ReadingStore#MISSING} marks a year without a value.
+     */
+    public static Trend of(float[] values, int startYear) {
+        int[] years = new int[values.length];
+        float[] present = new float[values.length];
+        int n = 0;
+        double meanX = 0, meanY = 0, coMoment = 0, squares = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == ReadingStore.MISSING) {
+                continue;
+            }
+            int x = startYear + i;
+            float y = values[i];
+            years[n] = x;
+            present[n] = y;
+            n++;
+            double dx = x - meanX;
+            meanX += dx / n;
+            meanY += (y - meanY) / n;
+            coMoment += dx * (y - meanY);
+            squares += dx * (x - meanX);
+        }
+        if (n == 0) {
+            return new Trend(0, Double.NaN, Double.NaN, Double.NaN, 0, Double.NaN, Double.NaN);
+        }
+        double slope = squares > 0 ? coMoment / squares : 0;
+        double intercept = meanY - slope * meanX;
+
+        double[] slopes = new double[n * (n - 1) / 2];
+        int pairs = 0;
+        long s = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                slopes[pairs++] = (present[j] - present[i]) / (double) (years[j] - years[i]);
+                s += present[j] > present[i] ? 1 : present[j] < present[i] ? -1 : 0;
+            }
+        }
+        double senSlope = pairs == 0 ? 0 : median(slopes, pairs);
+
+        float[] sorted = Arrays.copyOf(present, n);
+        Arrays.sort(sorted);
+        double variance = (double) n * (n - 1) * (2 * n + 5);
+        for (int i = 0, j; i < n; i = j) {
+            j = i + 1;
+            while (j < n && sorted[j] == sorted[i]) {
+                j++;
+            }
+            long t = j - i;
+            variance -= (double) t * (t - 1) * (2 * t + 5);
+        }
+        variance /= 18;
+        double z = variance <= 0 || s == 0 ? 0 : (s > 0 ? s - 1 : s + 1) / Math.sqrt(variance);
+        double pValue = 2 * (1 - NORMAL.cumulativeProbability(Math.abs(z)));
+        return new Trend(n, slope, intercept, senSlope, s, z, pValue);
+    }
+
+    private static double median(double[] values, int length) {
+        Arrays.sort(values, 0, length);
+        int half = length / 2;
+        return length % 2 == 1 ? values[half] : (values[half - 1] + values[half]) / 2;
+    }
+
+    /**
+     * Returns the value of the least-squares line at {@code year}.
+     */
+    public double valueAt(int year) {
+        return intercept + slope * year;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getSlope() {
+        return slope;
+    }
+
+    public double getIntercept() {
+        return intercept;
+    }
+
+    public double getSenSlope() {
+        return senSlope;
+    }
+
+    public long getMannKendallS() {
+        return s;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getPValue() {
+        return pValue;
+    }
+}
@@ -0,0 +1,65 @@
+package weather;
+
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+import weather.enums.StationsOption;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the {@link Trend} of every province, reading, season and stations option series and writes them as one
+ * CSV table, without rendering any chart. That is one row per combination of the {@link Province},
+ * {@link ReadingOf}, {@link Season} and {@link StationsOption} values, 2,250 at present.
+ * <p>
+ * The series are independent, so they are queried and fitted in parallel; the rows are written in the same order
+ * as the charts.
+ */
+class TrendReport {
+    private static final String HEADER = "province,reading,season,option,years,ols_slope,ols_intercept,sen_slope,"
+            + "mann_kendall_s,mann_kendall_z,mann_kendall_p";
+
+    private TrendReport() {
+    }
+
+    static void write(Data data, int startYear, int endYear, Path file) throws IOException {
+        List<Data.Query> queries = new ArrayList<>();
+        for (Province province : Province.values()) {
+            for (ReadingOf readingOf : ReadingOf.values()) {
+                for (Season season : Season.values()) {
+                    for (StationsOption stationsOption : StationsOption.values()) {
+                        queries.add(new Data.Query.Builder().readingOf(readingOf).stationsOption(stationsOption)
+                                .province(province).season(season).build());
+                    }
+                }
+            }
+        }
+
+        String[] rows = new String[queries.size()];
+        IntStream.range(0, rows.length).parallel().forEach(i -> {
+            Data.Query query = queries.get(i);
+            Trend trend = Trend.of(data.queryRange(query, startYear, endYear), startYear);
+            rows[i] = String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%.6g,%.6g,%.6g,%d,%.4f,%.4g",
+                    query.province.name(), query.readingOf.name(), query.season.name(), query.stationsOption.name(),
+                    trend.getCount(), trend.getSlope(), trend.getIntercept(), trend.getSenSlope(), trend.getMannKendallS(), trend.getZ(), trend.getPValue());
+        });
+
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (String row : rows) {
+            sb.append(row).append('\n');
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, sb, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Wrote " + rows.length + " trends to " + file);
+    }
+}
@@ -0,0 +1,91 @@
+package weather;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link AggregationKernel} on the Vector API, a whole vector of readings per step at the widest size the CPU
+ * supports.
+ * <p>
+ * The missing bitmap is read straight into the lane mask: steps start at a multiple of the lane count, which
+ * divides 64, so a step's bits never straddle two words. Years and months are widened to int lanes to build their
+ * masks, and each step is summed as two halves widened to double. Unaligned heads and the tail run the scalar loop.
+ */
+class VectorAggregationKernel extends AggregationKernel {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = FLOATS.length();
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+    private static final VectorSpecies<Double> DOUBLES = VectorSpecies.of(double.class, FLOATS.vectorShape());
+
+    private final VectorSpecies<Short> shorts;
+    private final VectorSpecies<Byte> bytes;
+    private final AggregationKernel.Scalar scalar = new AggregationKernel.Scalar();
+
+    VectorAggregationKernel() {
+        shorts = VectorSpecies.of(short.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / 2));
+        bytes = VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / 4));
+    }
+
+    /**
+     * Narrower vectors have no byte shape to load months into, and gain too little over the scalar loop.
+     */
+    static boolean isSupported() {
+        return LANES >= 8 && LANES <= 64;
+    }
+
+    @Override
+    void add(float[] values, long[] missing, short[] years, byte[] months, int from, int to, int year,
+             int monthMask, Aggregate aggregate, int slot) {
+        int start = Math.min(to, (from + LANES - 1) / LANES * LANES);
+        scalar.add(values, missing, years, months, from, start, year, monthMask, aggregate, slot);
+
+        DoubleVector lowTotal = DoubleVector.zero(DOUBLES), highTotal = DoubleVector.zero(DOUBLES);
+        FloatVector max = FloatVector.broadcast(FLOATS, Float.MIN_VALUE);
+        FloatVector min = FloatVector.broadcast(FLOATS, Float.MAX_VALUE);
+        FloatVector zero = FloatVector.zero(FLOATS);
+        IntVector monthBits = IntVector.broadcast(INTS, monthMask);
+        boolean allMonths = monthMask == -1;
+        int count = 0, i = start;
+        for (; i <= to - LANES; i += LANES) {
+            VectorMask<Float> accept = VectorMask.fromLong(FLOATS, ~(missing[i >>> 6] >>> (i & 63)));
+            if (!allMonths) {
+                IntVector month = (IntVector) ByteVector.fromArray(bytes, months, i)
+                        .convertShape(VectorOperators.B2I, INTS, 0);
+                accept = accept.and(monthBits.lanewise(VectorOperators.LSHR, month).and(1)
+                        .compare(VectorOperators.NE, 0).cast(FLOATS));
+            }
+            if (year != 0) {
+                IntVector yearOf = (IntVector) ShortVector.fromArray(shorts, years, i)
+                        .convertShape(VectorOperators.S2I, INTS, 0);
+                accept = accept.and(yearOf.compare(VectorOperators.EQ, year).cast(FLOATS));
+            }
+            if (!accept.anyTrue()) {
+                continue;
+            }
+
+            FloatVector value = FloatVector.fromArray(FLOATS, values, i);
+            FloatVector accepted = zero.blend(value, accept);
+            count += accept.trueCount();
+            lowTotal = lowTotal.add(accepted.convertShape(VectorOperators.F2D, DOUBLES, 0));
+            highTotal = highTotal.add(accepted.convertShape(VectorOperators.F2D, DOUBLES, 1));
+            max = max.lanewise(VectorOperators.MAX, value, accept);
+            min = min.lanewise(VectorOperators.MIN, value, accept);
+        }
+        aggregate.add(slot, lowTotal.reduceLanes(VectorOperators.ADD) + highTotal.reduceLanes(VectorOperators.ADD),
+                count, max.reduceLanes(VectorOperators.MAX), min.reduceLanes(VectorOperators.MIN));
+
+        scalar.add(values, missing, years, months, Math.max(i, start), to, year, monthMask, aggregate, slot);
+    }
+
+    @Override
+    public String toString() {
+        return "vector " + LANES + " x float";
+    }
+}
@@ -1,5 +1,26 @@
 package weather.enums;
 
 public enum StationsOption {
-    EXTREME_MAX, AVERAGE, EXTREME_MIN
+    EXTREME_MAX, AVERAGE, EXTREME_MIN, MEDIAN(0.5), P5(0.05), P95(0.95);
+
+    private final double quantile;
+
+    StationsOption() {
+        this(Double.NaN);
+    }
+
+    StationsOption(final double quantile) {
+        this.quantile = quantile;
+    }
+
+    /**
+     * Returns the quantile a percentile option selects, or NaN for the others.
+     */
+    public double getQuantile() {
+        return quantile;
+    }
+
+    public boolean isPercentile() {
+        return !Double.isNaN(quantile);
+    }
 }
@@ -0,0 +1,44 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChartPipelineTest {
+
+    @Test
+    void rendersComputedChartsAndCountsFailures() throws InterruptedException {
+        ChartPipeline pipeline = new ChartPipeline(2, 3, 1);
+        Set<Integer> rendered = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 100; i++) {
+            int chart = i;
+            pipeline.submit("chart " + i, () -> {
+                if (chart % 10 == 3) {
+                    throw new IllegalStateException("compute failed");
+                }
+                // Every fifth chart is already up to date.
+                return chart % 5 == 0 ? null : chart;
+            }, dataset -> {
+                if (dataset % 10 == 7) {
+                    throw new IllegalStateException("render failed");
+                }
+                rendered.add(dataset);
+            });
+        }
+
+        assertEquals(20, pipeline.await());
+        assertEquals(60, rendered.size());
+        for (int chart : rendered) {
+            assertTrue(chart % 5 != 0 && chart % 10 != 3 && chart % 10 != 7, "chart " + chart);
+        }
+    }
+
+    @Test
+    void awaitWithNothingSubmittedReturns() throws InterruptedException {
+        assertEquals(0, new ChartPipeline(1, 1, 1).await());
+    }
+}
@@ -0,0 +1,95 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClimateSummaryParserTest {
+    private static final float M = ReadingStore.MISSING;
+
+    private record Parsed(String identifier, String name, Province province, float latitude, float longitude,
+                          float[] values) {
+    }
+
+    @Test
+    void readsEveryStation() throws IOException {
+        List<Parsed> stations = parse("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <climate_summaries>
+                  <station>
+                    <name>OTTAWA <b>CDA</b></name>
+                    <identifier>6105976</identifier>
+                    <province_or_territory code="ON">Ontario</province_or_territory>
+                    <latitude>45.38</latitude>
+                    <longitude>-75.72</longitude>
+                    <min_temperature value="-20.5"/>
+                    <mean_temperature value="-10.1"/>
+                    <max_temperature value="-1.2"/>
+                    <snow total="35"/>
+                    <precipitation total="60.4"/>
+                    <unknown><nested value="1"/></unknown>
+                  </station>
+                  <station>
+                    <name>NOWHERE</name>
+                    <province_or_territory code="ZZ"/>
+                    <latitude>north</latitude>
+                    <min_temperature/>
+                    <mean_temperature value=""/>
+                    <max_temperature value="3"/>
+                    <max_temperature value="9"/>
+                  </station>
+                </climate_summaries>
+                """);
+
+        assertEquals(2, stations.size());
+        Parsed ottawa = stations.get(0);
+        assertEquals("6105976", ottawa.identifier());
+        assertEquals("OTTAWA CDA", ottawa.name());
+        assertEquals(Province.ON, ottawa.province());
+        assertEquals(45.38f, ottawa.latitude());
+        assertEquals(-75.72f, ottawa.longitude());
+        assertArrayEquals(new float[]{-20.5f, -10.1f, -1.2f, 35, 60.4f}, ottawa.values());
+
+        Parsed nowhere = stations.get(1);
+        assertNull(nowhere.identifier());
+        assertEquals(Province.XX, nowhere.province());
+        assertEquals(M, nowhere.latitude());
+        assertEquals(M, nowhere.longitude());
+        float[] values = new float[ReadingOf.values().length];
+        Arrays.fill(values, M);
+        values[ReadingOf.MAX_TEMP.ordinal()] = 3;
+        assertArrayEquals(values, nowhere.values());
+    }
+
+    @Test
+    void emptyDocumentHasNoStations() throws IOException {
+        assertEquals(0, parse("<climate_summaries></climate_summaries>").size());
+    }
+
+    @Test
+    void truncatedDocumentIsAnIOException() {
+        assertThrows(IOException.class, () -> parse("<climate_summaries><station><name>CUT"));
+    }
+
+    private static List<Parsed> parse(String xml) throws IOException {
+        ArrayList<Parsed> stations = new ArrayList<>();
+        try (InputStream in = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
+            ClimateSummaryParser.parse(in, (identifier, name, province, latitude, longitude, values) ->
+                    stations.add(new Parsed(identifier, name, province, latitude, longitude, values.clone())));
+        }
+        return stations;
+    }
+}
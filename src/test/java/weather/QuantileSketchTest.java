@@ -0,0 +1,80 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    void quantilesAreWithinBucketError() {
+        Random random = new Random(7);
+        float[] values = new float[20001];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) (random.nextGaussian() * 15 + (i % 3 == 0 ? -20 : 5));
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.count());
+        for (double q : QUANTILES) {
+            float exact = values[(int) Math.floor(q * (values.length - 1))];
+            float estimate = sketch.quantile(q);
+            // Values below 2^-16 count as zero, so allow that much on top of the relative error.
+            assertTrue(Math.abs(estimate - exact) <= Math.abs(exact) / 128 + 0x1p-16f,
+                    "quantile " + q + ": " + estimate + " for " + exact);
+        }
+    }
+
+    @Test
+    void quantilesAreClampedToMinAndMax() {
+        QuantileSketch single = new QuantileSketch();
+        single.add(-12.7f);
+        assertEquals(-12.7f, single.quantile(0));
+        assertEquals(-12.7f, single.quantile(1));
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (float v : new float[]{3.3f, -12.7f, 0, 101.9f, 7}) {
+            sketch.add(v);
+        }
+        for (double q : QUANTILES) {
+            float estimate = sketch.quantile(q);
+            assertTrue(estimate >= -12.7f && estimate <= 101.9f, "quantile " + q + ": " + estimate);
+        }
+    }
+
+    @Test
+    void emptySketchIsMissing() {
+        assertEquals(ReadingStore.MISSING, new QuantileSketch().quantile(0.5));
+    }
+
+    @Test
+    void mergingInAnyOrderEqualsAddingEverything() {
+        Random random = new Random(11);
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch[] parts = new QuantileSketch[5];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new QuantileSketch();
+            for (int i = 0; i < 1000; i++) {
+                float v = (float) (random.nextGaussian() * 10 * (p + 1));
+                parts[p].add(v);
+                all.add(v);
+            }
+        }
+        QuantileSketch forwards = new QuantileSketch(), backwards = new QuantileSketch();
+        for (int p = 0; p < parts.length; p++) {
+            forwards.merge(parts[p]);
+            backwards.merge(parts[parts.length - 1 - p]);
+        }
+        for (double q : QUANTILES) {
+            assertEquals(all.quantile(q), forwards.quantile(q), "quantile " + q);
+            assertEquals(all.quantile(q), backwards.quantile(q), "quantile " + q);
+        }
+    }
+}
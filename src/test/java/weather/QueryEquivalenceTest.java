@@ -0,0 +1,117 @@
+package weather;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import weather.enums.Province;
+import weather.enums.ReadingOf;
+import weather.enums.Season;
+import weather.enums.StationsOption;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every way of answering a query gives the same answer: unsorted and sorted readings, serial and parallel scans,
+ * the cube, and a range query against one query per year.
+ */
+class QueryEquivalenceTest {
+    private static final int FROM = TestStations.START_YEAR - 2, TO = TestStations.END_YEAR + 2;
+
+    private static ArrayList<Station> stations;
+    private static Data unsorted, serial, parallel, cube;
+
+    @BeforeAll
+    static void setUp() {
+        ArrayList<Station> raw = TestStations.unsorted(200, 1);
+        stations = TestStations.sorted(raw);
+        unsorted = new Data();
+        unsorted.setStations(raw);
+        serial = new Data();
+        serial.setStations(stations);
+        parallel = new Data();
+        parallel.setParallelEnabled(true);
+        parallel.setStations(stations);
+        cube = new Data();
+        cube.setCubeEnabled(true);
+        cube.setStations(stations);
+    }
+
+    @Test
+    void scansAgree() {
+        forEachQuery(query -> {
+            float[] expected = serial.queryRange(query, FROM, TO);
+            assertArrayEquals(expected, unsorted.queryRange(query, FROM, TO), query);
+            assertArrayEquals(expected, parallel.queryRange(query, FROM, TO), query);
+            assertEquals(serial.query(query), parallel.query(query), describe(query));
+        });
+    }
+
+    @Test
+    void rangeMatchesSingleYears() {
+        forEachQuery(query -> {
+            float[] range = serial.queryRange(query, FROM, TO);
+            for (int year = FROM; year <= TO; year++) {
+                assertEquals(range[year - FROM], serial.query(query.withYear(year)),
+                        describe(query) + " in " + year);
+            }
+        });
+    }
+
+    @Test
+    void cubeMatchesScan() {
+        forEachQuery(query -> {
+            float[] expected = serial.queryRange(query, FROM, TO), actual = cube.queryRange(query, FROM, TO);
+            for (int i = 0; i < expected.length; i++) {
+                if (query.stationsOption == StationsOption.AVERAGE && expected[i] != ReadingStore.MISSING) {
+                    // The cube sums in double precision per month, which can change the last bits.
+                    assertEquals(expected[i], actual[i], 1e-4 * Math.max(1, Math.abs(expected[i])),
+                            describe(query) + " in " + (FROM + i));
+                } else {
+                    assertEquals(expected[i], actual[i], describe(query) + " in " + (FROM + i));
+                }
+            }
+        });
+    }
+
+    @Test
+    void radiusQueriesMatchFilteredStations() {
+        Data.Query query = new Data.Query.Builder().readingOf(ReadingOf.MEAN_TEMP)
+                .stationsOption(StationsOption.AVERAGE).province(Province.CANADA).season(Season.ALL)
+                .withinRangeKM(800, 55, -100).build();
+        ArrayList<Station> near = new StationIndex(stations).within(800, 55, -100, Province.CANADA);
+        Data filtered = new Data();
+        filtered.setStations(near);
+        Data.Query everywhere = new Data.Query.Builder().readingOf(ReadingOf.MEAN_TEMP)
+                .stationsOption(StationsOption.AVERAGE).province(Province.CANADA).season(Season.ALL).build();
+        assertArrayEquals(filtered.queryRange(everywhere, FROM, TO), cube.queryRange(query, FROM, TO), query);
+    }
+
+    private static void forEachQuery(Consumer<Data.Query> check) {
+        for (ReadingOf readingOf : ReadingOf.values()) {
+            for (StationsOption option : StationsOption.values()) {
+                for (Season season : Season.values()) {
+                    for (Province province : new Province[]{Province.CANADA, Province.ON}) {
+                        for (int month : new int[]{0, 7}) {
+                            check.accept(new Data.Query.Builder().readingOf(readingOf).stationsOption(option)
+                                    .province(province).season(season).month(month).build());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String describe(Data.Query query) {
+        return query.stationsOption + " " + query.readingOf + " in " + query.province + " during " + query.season
+                + (query.month != 0 ? " month " + query.month : "");
+    }
+
+    private static void assertArrayEquals(float[] expected, float[] actual, Data.Query query) {
+        assertEquals(expected.length, actual.length, describe(query));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], describe(query) + " in " + (FROM + i));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheTest {
+    private static final YearMonth JANUARY = YearMonth.of(1990, 1), FEBRUARY = YearMonth.of(1990, 2);
+
+    @Test
+    void returnsWhatWasCaptured(@TempDir Path directory) throws IOException {
+        ResponseCache cache = ResponseCache.open(directory);
+        byte[] body = response(JANUARY);
+        store(cache, JANUARY, body, 10);
+        cache.saveIndex();
+
+        ResponseCache reopened = ResponseCache.open(directory);
+        assertEquals(List.of(JANUARY), reopened.periods());
+        assertArrayEquals(body, read(reopened, JANUARY));
+    }
+
+    @Test
+    void keepsTheUnreadRestOfTheBody(@TempDir Path directory) throws IOException {
+        ResponseCache cache = ResponseCache.open(directory);
+        byte[] body = response(JANUARY);
+        store(cache, JANUARY, body, 3);
+        assertArrayEquals(body, read(cache, JANUARY));
+    }
+
+    @Test
+    void abortedEntriesAreNotCached(@TempDir Path directory) throws IOException {
+        ResponseCache cache = ResponseCache.open(directory);
+        ResponseCache.Writer writer = cache.begin(JANUARY.getYear(), JANUARY.getMonthValue());
+        writer.capture(new ByteArrayInputStream(response(JANUARY))).read(new byte[10]);
+        writer.abort();
+
+        assertEquals(List.of(), cache.periods());
+        assertEquals(List.of(), ResponseCache.open(directory).periods());
+    }
+
+    @Test
+    void picksUpEntriesWrittenAfterTheLastSaveAndSkipsStrayFiles(@TempDir Path directory) throws IOException {
+        ResponseCache cache = ResponseCache.open(directory);
+        store(cache, JANUARY, response(JANUARY), 100);
+        cache.saveIndex();
+        store(cache, FEBRUARY, response(FEBRUARY), 100);
+        Files.writeString(directory.resolve("notes.xml.gz"), "not a month");
+        Files.writeString(directory.resolve("1990-03.xml.gz"), "not gzip");
+
+        ResponseCache reopened = ResponseCache.open(directory);
+        assertEquals(List.of(JANUARY, FEBRUARY), reopened.periods());
+        assertArrayEquals(response(FEBRUARY), read(reopened, FEBRUARY));
+    }
+
+    @Test
+    void corruptEntriesFailOnClose(@TempDir Path directory) throws IOException {
+        ResponseCache cache = ResponseCache.open(directory);
+        store(cache, JANUARY, response(JANUARY), 100);
+        cache.saveIndex();
+
+        // A valid gzip file of the wrong content, so only the size and CRC-32 in the index can tell.
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(directory.resolve(JANUARY + ".xml.gz")))) {
+            out.write(response(FEBRUARY));
+        }
+        ResponseCache reopened = ResponseCache.open(directory);
+        assertThrows(IOException.class, () -> read(reopened, JANUARY));
+        assertThrows(IOException.class, () -> reopened.open(FEBRUARY));
+        assertFalse(Files.list(directory).anyMatch(p -> p.toString().endsWith(".tmp")));
+    }
+
+    private static byte[] response(YearMonth period) {
+        StringBuilder xml = new StringBuilder("<climate_summaries>");
+        for (int i = 0; i < 200; i++) {
+            xml.append("<station><identifier>").append(i).append("</identifier><mean_temperature value=\"")
+                    .append(period.getMonthValue() + i / 10.0).append("\"/></station>");
+        }
+        return xml.append("</climate_summaries>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Caches a response the way a download does, with the parser reading only the first {@code parsed} bytes.
+     */
+    private static void store(ResponseCache cache, YearMonth period, byte[] body, int parsed) throws IOException {
+        ResponseCache.Writer writer = cache.begin(period.getYear(), period.getMonthValue());
+        InputStream in = writer.capture(new ByteArrayInputStream(body));
+        in.readNBytes(parsed);
+        in.close();
+        writer.commit();
+    }
+
+    private static byte[] read(ResponseCache cache, YearMonth period) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = cache.open(period)) {
+            in.transferTo(out);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,54 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RollingStatisticsTest {
+
+    @Test
+    void matchesBruteForceWindows() {
+        int[] windows = {1, 3, 7, 30};
+        RollingStatistics rolling = new RollingStatistics(windows);
+        Random random = new Random(3);
+        float[] values = new float[500];
+        for (int i = 0; i < values.length; i++) {
+            // Repeated values exercise the ties in the min and max deques.
+            values[i] = i % 11 == 0 ? 4 : (float) (random.nextGaussian() * 20);
+            rolling.update(values[i]);
+
+            for (int k = 0; k < windows.length; k++) {
+                int w = windows[k];
+                if (i + 1 < w) {
+                    assertFalse(rolling.isFull(k));
+                    assertEquals(ReadingStore.MISSING, rolling.getMean(k));
+                    continue;
+                }
+                double sum = 0, squares = 0;
+                float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+                for (int j = i - w + 1; j <= i; j++) {
+                    sum += values[j];
+                    squares += (double) values[j] * values[j];
+                    min = Math.min(min, values[j]);
+                    max = Math.max(max, values[j]);
+                }
+                double mean = sum / w;
+                String at = "window " + w + " at " + i;
+                assertEquals(mean, rolling.getMean(k), 1e-3, at);
+                assertEquals(Math.max(0, squares / w - mean * mean), rolling.getVariance(k), 1e-2, at);
+                assertEquals(min, rolling.getMin(k), at);
+                assertEquals(max, rolling.getMax(k), at);
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidWindows() {
+        assertThrows(IllegalArgumentException.class, RollingStatistics::new);
+        assertThrows(IllegalArgumentException.class, () -> new RollingStatistics(5, 0));
+    }
+}
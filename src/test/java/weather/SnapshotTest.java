@@ -0,0 +1,47 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import weather.enums.ReadingOf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnapshotTest {
+
+    @Test
+    void roundTripsEveryStationAndReading(@TempDir Path directory) throws IOException {
+        ArrayList<Station> stations = TestStations.sorted(TestStations.unsorted(50, 2));
+        stations.add(new Station(null, null, null, 0, 0, new ReadingStore()));
+        Path path = directory.resolve(Data.SNAPSHOT_FILE);
+
+        Snapshot.write(path, stations);
+        ArrayList<Station> read = Snapshot.read(path);
+
+        assertEquals(stations.size(), read.size());
+        for (int s = 0; s < stations.size(); s++) {
+            Station expected = stations.get(s), actual = read.get(s);
+            assertEquals(expected.getProvince(), actual.getProvince());
+            assertEquals(expected.getLatitude(), actual.getLatitude());
+            assertEquals(expected.getLongitude(), actual.getLongitude());
+            if (expected.getIdentifier() != null) {
+                assertEquals(expected.getIdentifier(), actual.getIdentifier());
+                assertEquals(expected.getName(), actual.getName());
+            }
+
+            ReadingStore a = expected.getReadings(), b = actual.getReadings();
+            assertEquals(a.size(), b.size(), expected.getIdentifier());
+            for (int i = 0; i < a.size(); i++) {
+                assertEquals(a.getYear(i), b.getYear(i));
+                assertEquals(a.getMonth(i), b.getMonth(i));
+                for (ReadingOf field : ReadingOf.values()) {
+                    assertEquals(a.isMissing(field, i), b.isMissing(field, i));
+                    assertEquals(a.get(field, i), b.get(field, i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+import weather.enums.Province;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StationIndexTest {
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    @Test
+    void matchesGreatCircleFilter() {
+        Random random = new Random(9);
+        ArrayList<Station> stations = new ArrayList<>();
+        Province[] provinces = Province.values();
+        for (int i = 0; i < 2000; i++) {
+            // Cover the whole globe, poles and the antimeridian included, not just Canada.
+            float latitude = (float) (random.nextDouble() * 180 - 90);
+            float longitude = (float) (random.nextDouble() * 360 - 180);
+            stations.add(new Station("s" + i, "s" + i, provinces[random.nextInt(provinces.length)], latitude,
+                    longitude, new ReadingStore()));
+        }
+        StationIndex index = new StationIndex(stations);
+
+        float[][] points = {{45, -75}, {89.5f, 10}, {-89, 0}, {60, 179.9f}, {60, -179.9f}, {0, 0}};
+        float[] radii = {1, 50, 500, 3000, 15000, 25000};
+        for (float[] point : points) {
+            for (float km : radii) {
+                for (Province province : new Province[]{Province.CANADA, Province.ON}) {
+                    assertEquals(filter(stations, km, point[0], point[1], province),
+                            index.within(km, point[0], point[1], province),
+                            km + " km of " + point[0] + ", " + point[1] + " in " + province);
+                }
+            }
+        }
+    }
+
+    private static List<Station> filter(List<Station> stations, float km, float latitude, float longitude,
+                                        Province province) {
+        ArrayList<Station> within = new ArrayList<>();
+        for (Station s : stations) {
+            if ((province == Province.CANADA || s.getProvince() == province)
+                    && distance(latitude, longitude, s.getLatitude(), s.getLongitude()) <= km) {
+                within.add(s);
+            }
+        }
+        return within;
+    }
+
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1), dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,67 @@
+package weather;
+
+import weather.enums.Province;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Random stations for the tests: readings added out of (year, month) order, with gaps and missing values.
+ */
+final class TestStations {
+    static final int START_YEAR = 1950, END_YEAR = 2000;
+    private static final Province[] PROVINCES = {Province.NL, Province.PE, Province.NS, Province.NB, Province.QC,
+            Province.ON, Province.MB, Province.SK, Province.AB, Province.BC, Province.YT, Province.NT, Province.NU};
+
+    private TestStations() {
+    }
+
+    /**
+     * Returns {@code count} stations whose readings are in the order they were added.
+     */
+    static ArrayList<Station> unsorted(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Station> stations = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            ArrayList<int[]> months = new ArrayList<>();
+            for (int year = START_YEAR; year <= END_YEAR; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    if (random.nextInt(5) != 0) {
+                        months.add(new int[]{year, month});
+                    }
+                }
+            }
+            Collections.shuffle(months, random);
+
+            ReadingStore readings = new ReadingStore();
+            for (int[] ym : months) {
+                float[] v = new float[5];
+                for (int k = 0; k < v.length; k++) {
+                    v[k] = random.nextInt(15) == 0 ? ReadingStore.MISSING : (float) (random.nextGaussian() * 10);
+                }
+                readings.add(ym[0], ym[1], v[0], v[1], v[2], v[3], v[4]);
+            }
+            // Every tenth station has no province and only counts towards Canada.
+            Province province = s % 10 == 9 ? null : PROVINCES[random.nextInt(PROVINCES.length)];
+            stations.add(new Station("Station " + s, "ID" + s, province, 42 + random.nextFloat() * 30,
+                    -140 + random.nextFloat() * 80, readings));
+        }
+        return stations;
+    }
+
+    /**
+     * Returns copies of the stations with their readings in (year, month) order.
+     */
+    static ArrayList<Station> sorted(ArrayList<Station> stations) {
+        ArrayList<Station> sorted = new ArrayList<>();
+        for (Station s : stations) {
+            ReadingStore readings = new ReadingStore();
+            readings.addAll(s.getReadings());
+            readings.trimToSize();
+            sorted.add(new Station(s.getName(), s.getIdentifier(), s.getProvince(), s.getLatitude(),
+                    s.getLongitude(), readings));
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,66 @@
+package weather;
+
+import org.apache.commons.math3.fitting.PolynomialCurveFitter;
+import org.apache.commons.math3.fitting.WeightedObservedPoints;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendTest {
+
+    @Test
+    void lineMatchesPolynomialFit() {
+        Random random = new Random(5);
+        float[] values = new float[123];
+        WeightedObservedPoints points = new WeightedObservedPoints();
+        for (int i = 0; i < values.length; i++) {
+            if (i % 9 == 4) {
+                values[i] = ReadingStore.MISSING;
+                continue;
+            }
+            values[i] = (float) (0.02 * i - 3 + random.nextGaussian());
+            points.add(1900 + i, values[i]);
+        }
+        double[] fit = PolynomialCurveFitter.create(1).fit(points.toList());
+
+        Trend trend = Trend.of(values, 1900);
+        assertEquals(points.toList().size(), trend.getCount());
+        assertEquals(fit[1], trend.getSlope(), 1e-9);
+        assertEquals(fit[0], trend.getIntercept(), 1e-5);
+        assertEquals(fit[0] + fit[1] * 2000, trend.valueAt(2000), 1e-6);
+    }
+
+    @Test
+    void steadyRiseIsSignificant() {
+        float[] values = new float[30];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 2 * i + 1;
+        }
+        Trend trend = Trend.of(values, 1990);
+        assertEquals(2, trend.getSlope(), 1e-9);
+        assertEquals(2, trend.getSenSlope(), 1e-9);
+        assertEquals(30 * 29 / 2, trend.getMannKendallS());
+        assertTrue(trend.getZ() > 0);
+        assertTrue(trend.getPValue() < 1e-6);
+    }
+
+    @Test
+    void flatSeriesHasNoTrend() {
+        float[] values = {4, 4, 4, 4, 4, 4};
+        Trend trend = Trend.of(values, 2000);
+        assertEquals(0, trend.getSlope());
+        assertEquals(0, trend.getSenSlope());
+        assertEquals(0, trend.getMannKendallS());
+        assertEquals(1, trend.getPValue(), 1e-12);
+    }
+
+    @Test
+    void emptySeriesIsUndefined() {
+        Trend trend = Trend.of(new float[]{ReadingStore.MISSING, ReadingStore.MISSING}, 2000);
+        assertEquals(0, trend.getCount());
+        assertTrue(Double.isNaN(trend.getSlope()));
+    }
+}